@@ -0,0 +1,136 @@
+package be.kuleuven.stgp.core.model;
+
+import be.kuleuven.stgp.core.util.*;
+
+import java.util.*;
+
+/**
+ * This class stores, for each team, a list with its nearest compatible teams
+ * (candidate list), sorted by increasing weighted distance and time. The
+ * candidates are collected from the geographically closest clubs, using the
+ * club index of the problem, so that only a small part of the instance is
+ * inspected per team. The search around a club stops widening once it covers
+ * every club within maxTravelDist (in projected km) of it: the travel
+ * distances are road distances, so the teams of farther clubs are not
+ * compatible with the club's teams.
+ *
+ * @author Tulio Toffolo
+ */
+public class CandidateLists {
+
+    /**
+     * Number of candidates per team of the lists returned by
+     * Problem.getCandidateLists().
+     */
+    public static final int DEFAULT_SIZE = 20;
+
+    public final Problem problem;
+    public final int k;
+
+    private final int candidates[][];
+
+    /**
+     * Instantiates new CandidateLists.
+     *
+     * @param problem the problem
+     * @param k       the (maximum) number of candidates of each team
+     */
+    public CandidateLists(Problem problem, int k) {
+        this.problem = problem;
+        this.k = k;
+        this.candidates = new int[problem.teams.length][];
+
+        KdTree index = problem.getClubIndex();
+        for (Club club : problem.clubs) {
+            if (club.teams.isEmpty()) continue;
+
+            // visiting clubs by increasing geographic distance, widening the search
+            // until 2k compatible teams are found for every team of the club or
+            // the clubs within the maximum travel distance are exhausted
+            double x = problem.getClubX(club), y = problem.getClubY(club);
+            int nClubs = Math.min(problem.clubs.length, 8);
+            while (true) {
+                int nearestClubs[] = index.nearest(x, y, nClubs);
+                Club farthest = problem.clubs[nearestClubs[nearestClubs.length - 1]];
+                boolean complete = nClubs >= problem.clubs.length
+                  || Math.hypot(problem.getClubX(farthest) - x, problem.getClubY(farthest) - y) > problem.maxTravelDist;
+
+                for (Team team : club.teams)
+                    if (candidates[team.id] == null)
+                        candidates[team.id] = buildCandidates(team, nearestClubs, complete);
+
+                if (complete || club.teams.stream().allMatch(team -> candidates[team.id] != null))
+                    break;
+                nClubs = Math.min(problem.clubs.length, nClubs * 2);
+            }
+        }
+    }
+
+    /**
+     * Gets the candidate list of a team.
+     *
+     * @param teamId the team's id
+     * @return the ids of the candidate teams, sorted by increasing weighted
+     * distance and time (the array must not be modified)
+     */
+    public int[] getCandidates(int teamId) {
+        return candidates[teamId];
+    }
+
+    /**
+     * Gets the candidate list of a team.
+     *
+     * @param team the team
+     * @return the candidate teams, sorted by increasing weighted distance and
+     * time
+     */
+    public List<Team> getCandidates(Team team) {
+        List<Team> list = new ArrayList<>(candidates[team.id].length);
+        for (int id : candidates[team.id])
+            list.add(problem.teams[id]);
+        return list;
+    }
+
+    /**
+     * Checks if a team is in the candidate list of another team.
+     *
+     * @param teamId      the team's id
+     * @param candidateId the candidate team's id
+     * @return true if candidateId is in the candidate list of teamId and false
+     * otherwise
+     */
+    public boolean isCandidate(int teamId, int candidateId) {
+        for (int id : candidates[teamId])
+            if (id == candidateId)
+                return true;
+        return false;
+    }
+
+    private int[] buildCandidates(Team team, int nearestClubs[], boolean complete) {
+        int buffer[] = new int[2 * k];
+        int size = 0;
+
+        for (int clubId : nearestClubs) {
+            for (Team other : problem.clubs[clubId].teams) {
+                if (other.id == team.id || !problem.isCompatible(team.id, other.id)) continue;
+                if (size == buffer.length)
+                    buffer = Arrays.copyOf(buffer, size * 2);
+                buffer[size++] = other.id;
+            }
+            if (size >= 2 * k) break;
+        }
+        if (size < 2 * k && !complete)
+            return null;
+
+        // sorting by weighted distance and time (ties broken by id)
+        long keys[] = new long[size];
+        for (int i = 0; i < size; i++)
+            keys[i] = (( long ) problem.pairCost(team.id, buffer[i]) << 32) | buffer[i];
+        Arrays.sort(keys);
+
+        int result[] = new int[Math.min(k, size)];
+        for (int i = 0; i < result.length; i++)
+            result[i] = ( int ) keys[i];
+        return result;
+    }
+}
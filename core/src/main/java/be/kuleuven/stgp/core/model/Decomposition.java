@@ -0,0 +1,250 @@
+package be.kuleuven.stgp.core.model;
+
+import be.kuleuven.stgp.core.model.solution.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+/**
+ * This class decomposes a problem into the connected components of its team
+ * compatibility graph. Since teams from different components can never share
+ * a league, each component is an independent sub-problem (built with the
+ * Problem.Builder), which can be solved separately and in parallel; the
+ * solutions of the components are then merged into a solution of the
+ * original problem.
+ *
+ * @author Tulio Toffolo
+ */
+public class Decomposition {
+
+    public final Problem problem;
+
+    private final int componentTeam[];
+    private final Problem subProblems[];
+    private final int originalTeams[][];
+
+    /**
+     * Instantiates a new Decomposition, computing the connected components of
+     * the problem and building one sub-problem per component.
+     *
+     * @param problem the problem
+     */
+    public Decomposition(Problem problem) {
+        this.problem = problem;
+        this.componentTeam = new int[problem.teams.length];
+
+        List<int[]> components = computeComponents();
+        this.subProblems = new Problem[components.size()];
+        this.originalTeams = new int[components.size()][];
+        for (int c = 0; c < components.size(); c++) {
+            originalTeams[c] = components.get(c);
+            subProblems[c] = components.size() == 1 ? problem : buildSubProblem(c, originalTeams[c]);
+        }
+    }
+
+    /**
+     * Gets the index of the component of a team of the original problem.
+     *
+     * @param team the team
+     * @return the index of the component that contains the team
+     */
+    public int getComponent(Team team) {
+        return componentTeam[team.id];
+    }
+
+    /**
+     * Gets the number of components.
+     *
+     * @return the number of components
+     */
+    public int getNComponents() {
+        return subProblems.length;
+    }
+
+    /**
+     * Gets the team of the original problem that corresponds to a team of a
+     * sub-problem.
+     *
+     * @param component the index of the component
+     * @param team      the team of the sub-problem
+     * @return the team of the original problem
+     */
+    public Team getOriginalTeam(int component, Team team) {
+        return problem.teams[originalTeams[component][team.id]];
+    }
+
+    /**
+     * Gets the sub-problem of a component. If the problem has a single
+     * component, the original problem itself is returned.
+     *
+     * @param component the index of the component
+     * @return the sub-problem
+     */
+    public Problem getSubProblem(int component) {
+        return subProblems[component];
+    }
+
+    /**
+     * Merges the solutions of the sub-problems into a solution of the
+     * original problem.
+     *
+     * @param solutions the solutions, one per component (in order)
+     * @return the solution of the original problem
+     */
+    public Solution merge(List<Solution> solutions) {
+        if (solutions.size() != subProblems.length)
+            throw new IllegalArgumentException("expected " + subProblems.length + " solutions, got " + solutions.size());
+
+        Solution solution = new Solution(problem);
+        for (int c = 0; c < subProblems.length; c++) {
+            if (solutions.get(c).problem != subProblems[c])
+                throw new IllegalArgumentException("solution " + c + " does not belong to the sub-problem of component " + c);
+
+            for (League subLeague : solutions.get(c)) {
+                League league = new League(problem);
+                for (Team team : subLeague)
+                    league.add(getOriginalTeam(c, team));
+                solution.addLeague(league);
+            }
+        }
+        return solution;
+    }
+
+    /**
+     * Solves the sub-problems in parallel and merges their solutions. The
+     * solver is called once per component, possibly from several threads at
+     * the same time, so it must not share state between calls (e.g. it
+     * should create a new heuristic Solver per call).
+     *
+     * @param solver   function that solves a (sub-)problem
+     * @param nThreads the maximum number of threads to use
+     * @return the solution of the original problem
+     */
+    public Solution solve(Function<Problem, Solution> solver, int nThreads) {
+        if (subProblems.length == 1)
+            return merge(Collections.singletonList(solver.apply(subProblems[0])));
+
+        // largest components are submitted first, so that they do not end up
+        // running alone at the end
+        Integer order[] = new Integer[subProblems.length];
+        for (int c = 0; c < order.length; c++)
+            order[c] = c;
+        Arrays.sort(order, (c1, c2) -> Integer.compare(originalTeams[c2].length, originalTeams[c1].length));
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(nThreads, subProblems.length)));
+        try {
+            List<Future<Solution>> futures = new ArrayList<>(Collections.nCopies(subProblems.length, null));
+            for (int c : order) {
+                Problem subProblem = subProblems[c];
+                futures.set(c, executor.submit(() -> solver.apply(subProblem)));
+            }
+
+            List<Solution> solutions = new ArrayList<>(subProblems.length);
+            for (Future<Solution> future : futures)
+                solutions.add(future.get());
+            return merge(solutions);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw ( RuntimeException ) e.getCause();
+            throw new IllegalStateException("error while solving a component", e.getCause());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while solving the components", e);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Computes the connected components (breadth-first search over the
+     * compatibility bitmatrix), each one with its team ids sorted.
+     */
+    private List<int[]> computeComponents() {
+        int nTeams = problem.teams.length;
+        long unvisited[] = new long[(nTeams + 63) >>> 6];
+        for (int i = 0; i < nTeams; i++)
+            unvisited[i >>> 6] |= 1L << i;
+
+        List<int[]> components = new ArrayList<>();
+        int queue[] = new int[nTeams];
+        for (int root = 0; root < nTeams; root++) {
+            if ((unvisited[root >>> 6] & (1L << root)) == 0) continue;
+
+            int head = 0, tail = 0;
+            queue[tail++] = root;
+            unvisited[root >>> 6] &= ~(1L << root);
+            while (head < tail) {
+                long row[] = problem.getCompatibleRow(queue[head++]);
+                for (int w = 0; w < row.length; w++) {
+                    long bits = row[w] & unvisited[w];
+                    unvisited[w] &= ~bits;
+                    while (bits != 0) {
+                        queue[tail++] = (w << 6) + Long.numberOfTrailingZeros(bits);
+                        bits &= bits - 1;
+                    }
+                }
+            }
+
+            int component[] = Arrays.copyOf(queue, tail);
+            Arrays.sort(component);
+            for (int id : component)
+                componentTeam[id] = components.size();
+            components.add(component);
+        }
+        return components;
+    }
+
+    /**
+     * Builds the sub-problem with the given teams (and their clubs), keeping
+     * the parameters of the original problem.
+     */
+    private Problem buildSubProblem(int component, int teamIds[]) {
+        // mapping the clubs with teams in the component to new ids
+        int clubIds[] = new int[problem.clubs.length];
+        Arrays.fill(clubIds, -1);
+        List<Club> clubs = new ArrayList<>();
+        for (int id : teamIds) {
+            Club club = problem.teams[id].club;
+            if (clubIds[club.id] == -1) {
+                clubIds[club.id] = clubs.size();
+                clubs.add(club);
+            }
+        }
+
+        Problem.Builder builder = new Problem.Builder()
+          .setProblemName(problem.name + "_" + component)
+          .setnClubs(clubs.size())
+          .setnDivisions(1)
+          .setnTeams(teamIds.length)
+          .setMaxLevelDiff(problem.maxLevelDiff)
+          .setMinLeagueSize(problem.minLeagueSize)
+          .setMaxLeagueSize(problem.maxLeagueSize)
+          .setMaxTeamSameClub(problem.maxTeamSameClub)
+          .setMaxTravelDist(problem.maxTravelDist)
+          .setMaxTravelTime(problem.maxTravelTime)
+          .setWeightTravelDist(problem.weightTravelDist)
+          .setWeightTravelTime(problem.weightTravelTime)
+          .initProblem();
+
+        Club subClubs[] = new Club[clubs.size()];
+        for (int i = 0; i < subClubs.length; i++) {
+            Club club = clubs.get(i);
+            subClubs[i] = builder.createClub(i, club.cod, club.name, club.nFields, club.latitude, club.longitude);
+        }
+        for (int i = 0; i < teamIds.length; i++) {
+            Team team = problem.teams[teamIds[i]];
+            builder.createTeam(i, team.cod, team.name, subClubs[clubIds[team.club.id]], team.level);
+        }
+        for (int i = 0; i < subClubs.length; i++) {
+            for (int j = 0; j < subClubs.length; j++) {
+                builder.setDist(i, j, problem.travelDists[clubs.get(i).id][clubs.get(j).id]);
+                builder.setTime(i, j, problem.travelTimes[clubs.get(i).id][clubs.get(j).id]);
+            }
+        }
+        return builder.getProblem();
+    }
+}
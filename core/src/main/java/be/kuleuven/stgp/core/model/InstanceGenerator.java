@@ -0,0 +1,367 @@
+package be.kuleuven.stgp.core.model;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Generator of synthetic (and reproducible) instances, built on top of the
+ * Problem.Builder. Clubs are placed in a rectangular region, most of them
+ * around randomly chosen cluster centers (cities) and the remaining ones
+ * uniformly; teams are spread over the clubs with skewed weights and have
+ * their levels drawn from a configurable distribution. Travel distances are
+ * great-circle distances multiplied by a road factor, and travel times are
+ * derived from the distances assuming an average speed.
+ * <p>
+ * The same configuration and seed always produce the same instance.
+ *
+ * @author Tulio Toffolo
+ */
+public class InstanceGenerator {
+
+    private String problemName = "synthetic";
+    private long seed = 1;
+
+    private int nTeams = 1000, nClubs = 250;
+    private double levelWeights[] = { 0.10, 0.25, 0.30, 0.25, 0.10 };
+
+    private int nClusters = 10;
+    private double clusteredFraction = 0.8, clusterRadius = 15;
+    private double minLatitude = 50.7, maxLatitude = 51.4;
+    private double minLongitude = 2.6, maxLongitude = 5.9;
+    private double roadFactor = 1.3, averageSpeed = 60;
+
+    private int minLeagueSize = 6, maxLeagueSize = 8, maxLevelDiff = 1, maxTeamSameClub = 2;
+    private int maxTravelDist = 250, maxTravelTime = 180;
+    private int weightTravelDist = 1, weightTravelTime = 1;
+
+    public static void main(String args[]) throws IOException {
+        Locale.setDefault(new Locale("en-US"));
+
+        if (args.length < 3) {
+            System.out.printf("Usage: java -cp stgp-core.jar %s <output_file> <n_teams> <n_clubs> [n_clusters] [n_levels] [seed]\n\n",
+              InstanceGenerator.class.getName());
+            System.out.printf("The output format is chosen by the file extension: .json, .bin or .prob (default).\n\n");
+            return;
+        }
+
+        String outPath = args[0];
+        InstanceGenerator generator = new InstanceGenerator()
+          .setProblemName(new File(outPath).getName().replaceFirst("\\.[^.]*$", ""))
+          .setnTeams(Integer.parseInt(args[1]))
+          .setnClubs(Integer.parseInt(args[2]));
+        if (args.length > 3)
+            generator.setnClusters(Integer.parseInt(args[3]));
+        if (args.length > 4) {
+            double weights[] = new double[Integer.parseInt(args[4])];
+            Arrays.fill(weights, 1.0);
+            generator.setLevelWeights(weights);
+        }
+        if (args.length > 5)
+            generator.setSeed(Long.parseLong(args[5]));
+
+        Problem problem = generator.generate();
+        if (outPath.endsWith(".json"))
+            problem.writeJson(outPath);
+        else if (outPath.endsWith(".bin"))
+            problem.writeBinary(outPath);
+        else
+            problem.writeTxt(outPath);
+
+        System.out.printf("Instance %s generated with %d clubs and %d teams.\n", problem.name, problem.clubs.length, problem.teams.length);
+    }
+
+    /**
+     * Generates a new problem with the current configuration.
+     *
+     * @return the problem
+     */
+    public Problem generate() {
+        if (nClubs <= 0 || nTeams < nClubs)
+            throw new IllegalStateException("the number of teams must be at least the number of clubs (and positive)");
+
+        Random random = new Random(seed);
+        Problem.Builder builder = new Problem.Builder()
+          .setProblemName(problemName)
+          .setnClubs(nClubs)
+          .setnDivisions(1)
+          .setnTeams(nTeams)
+          .setMaxLevelDiff(maxLevelDiff)
+          .setMinLeagueSize(minLeagueSize)
+          .setMaxLeagueSize(maxLeagueSize)
+          .setMaxTeamSameClub(maxTeamSameClub)
+          .setMaxTravelDist(maxTravelDist)
+          .setMaxTravelTime(maxTravelTime)
+          .setWeightTravelDist(weightTravelDist)
+          .setWeightTravelTime(weightTravelTime)
+          .initProblem();
+
+        // creating cluster centers and clubs
+        double centers[][] = new double[Math.max(nClusters, 1)][];
+        for (int c = 0; c < centers.length; c++)
+            centers[c] = new double[]{ uniform(random, minLatitude, maxLatitude), uniform(random, minLongitude, maxLongitude) };
+
+        Club clubs[] = new Club[nClubs];
+        for (int i = 0; i < nClubs; i++) {
+            double latitude, longitude;
+            if (nClusters > 0 && random.nextDouble() < clusteredFraction) {
+                // gaussian offset (in km) around a cluster center
+                double center[] = centers[random.nextInt(centers.length)];
+                latitude = center[0] + random.nextGaussian() * clusterRadius / 110.57;
+                longitude = center[1] + random.nextGaussian() * clusterRadius / (111.32 * Math.cos(Math.toRadians(center[0])));
+                latitude = Math.max(minLatitude, Math.min(maxLatitude, latitude));
+                longitude = Math.max(minLongitude, Math.min(maxLongitude, longitude));
+            }
+            else {
+                latitude = uniform(random, minLatitude, maxLatitude);
+                longitude = uniform(random, minLongitude, maxLongitude);
+            }
+            clubs[i] = builder.createClub(i, 1000 + i, "Club " + (1000 + i), 1 + random.nextInt(3), latitude, longitude);
+        }
+
+        // spreading teams over clubs: one team per club plus the remaining
+        // ones drawn with (exponentially distributed) club weights
+        double cumulative[] = new double[nClubs];
+        for (int i = 0; i < nClubs; i++)
+            cumulative[i] = (i > 0 ? cumulative[i - 1] : 0) - Math.log(1 - random.nextDouble());
+
+        double cumulativeLevels[] = new double[levelWeights.length];
+        for (int l = 0; l < levelWeights.length; l++)
+            cumulativeLevels[l] = (l > 0 ? cumulativeLevels[l - 1] : 0) + levelWeights[l];
+
+        for (int i = 0; i < nTeams; i++) {
+            Club club = i < nClubs ? clubs[i] : clubs[draw(random, cumulative)];
+            int level = 1 + draw(random, cumulativeLevels);
+            builder.createTeam(i, i + 1, "Team " + (i + 1), club, level);
+        }
+
+        // computing travel distances (km) and times (minutes)
+        for (int i = 0; i < nClubs; i++) {
+            for (int j = i + 1; j < nClubs; j++) {
+                double km = roadFactor * greatCircleDist(clubs[i], clubs[j]);
+                int dist = ( int ) Math.round(km);
+                int time = ( int ) Math.round(5 + km / averageSpeed * 60);
+                builder.setDist(i, j, dist).setDist(j, i, dist);
+                builder.setTime(i, j, time).setTime(j, i, time);
+            }
+        }
+
+        return builder.getProblem();
+    }
+
+    /**
+     * Sets the average speed (in km/h) used to compute travel times.
+     *
+     * @param averageSpeed the average speed
+     * @return the generator
+     */
+    public InstanceGenerator setAverageSpeed(double averageSpeed) {
+        this.averageSpeed = averageSpeed;
+        return this;
+    }
+
+    /**
+     * Sets the fraction of the clubs placed around cluster centers.
+     *
+     * @param clusteredFraction the fraction of clustered clubs
+     * @return the generator
+     */
+    public InstanceGenerator setClusteredFraction(double clusteredFraction) {
+        this.clusteredFraction = clusteredFraction;
+        return this;
+    }
+
+    /**
+     * Sets the standard deviation (in km) of the distance between a club and
+     * its cluster center.
+     *
+     * @param clusterRadius the cluster radius
+     * @return the generator
+     */
+    public InstanceGenerator setClusterRadius(double clusterRadius) {
+        this.clusterRadius = clusterRadius;
+        return this;
+    }
+
+    /**
+     * Sets the relative frequency of each level (levels are numbered from 1).
+     *
+     * @param levelWeights the weights of the levels
+     * @return the generator
+     */
+    public InstanceGenerator setLevelWeights(double levelWeights[]) {
+        if (levelWeights.length == 0)
+            throw new IllegalArgumentException("at least one level is required");
+        this.levelWeights = levelWeights.clone();
+        return this;
+    }
+
+    /**
+     * Sets the league size limits.
+     *
+     * @param minLeagueSize the min league size
+     * @param maxLeagueSize the max league size
+     * @return the generator
+     */
+    public InstanceGenerator setLeagueSize(int minLeagueSize, int maxLeagueSize) {
+        this.minLeagueSize = minLeagueSize;
+        this.maxLeagueSize = maxLeagueSize;
+        return this;
+    }
+
+    /**
+     * Sets maximum level diff allowed.
+     *
+     * @param maxLevelDiff the max level diff
+     * @return the generator
+     */
+    public InstanceGenerator setMaxLevelDiff(int maxLevelDiff) {
+        this.maxLevelDiff = maxLevelDiff;
+        return this;
+    }
+
+    /**
+     * Sets max number of teams from the same club.
+     *
+     * @param maxTeamSameClub the max number of teams from the same club
+     * @return the generator
+     */
+    public InstanceGenerator setMaxTeamSameClub(int maxTeamSameClub) {
+        this.maxTeamSameClub = maxTeamSameClub;
+        return this;
+    }
+
+    /**
+     * Sets max travel distance and time.
+     *
+     * @param maxTravelDist the max travel dist
+     * @param maxTravelTime the max travel time
+     * @return the generator
+     */
+    public InstanceGenerator setMaxTravel(int maxTravelDist, int maxTravelTime) {
+        this.maxTravelDist = maxTravelDist;
+        this.maxTravelTime = maxTravelTime;
+        return this;
+    }
+
+    /**
+     * Sets the number of clubs.
+     *
+     * @param nClubs the number of clubs
+     * @return the generator
+     */
+    public InstanceGenerator setnClubs(int nClubs) {
+        this.nClubs = nClubs;
+        return this;
+    }
+
+    /**
+     * Sets the number of cluster centers (0 places all clubs uniformly).
+     *
+     * @param nClusters the number of clusters
+     * @return the generator
+     */
+    public InstanceGenerator setnClusters(int nClusters) {
+        this.nClusters = nClusters;
+        return this;
+    }
+
+    /**
+     * Sets the number of teams.
+     *
+     * @param nTeams the number of teams
+     * @return the generator
+     */
+    public InstanceGenerator setnTeams(int nTeams) {
+        this.nTeams = nTeams;
+        return this;
+    }
+
+    /**
+     * Sets problem name.
+     *
+     * @param problemName the problem name
+     * @return the generator
+     */
+    public InstanceGenerator setProblemName(String problemName) {
+        this.problemName = problemName;
+        return this;
+    }
+
+    /**
+     * Sets the region (bounding box) where clubs are placed.
+     *
+     * @param minLatitude  the minimum latitude
+     * @param maxLatitude  the maximum latitude
+     * @param minLongitude the minimum longitude
+     * @param maxLongitude the maximum longitude
+     * @return the generator
+     */
+    public InstanceGenerator setRegion(double minLatitude, double maxLatitude, double minLongitude, double maxLongitude) {
+        this.minLatitude = minLatitude;
+        this.maxLatitude = maxLatitude;
+        this.minLongitude = minLongitude;
+        this.maxLongitude = maxLongitude;
+        return this;
+    }
+
+    /**
+     * Sets the factor applied to great-circle distances to obtain road
+     * distances.
+     *
+     * @param roadFactor the road factor
+     * @return the generator
+     */
+    public InstanceGenerator setRoadFactor(double roadFactor) {
+        this.roadFactor = roadFactor;
+        return this;
+    }
+
+    /**
+     * Sets the seed of the random number generator.
+     *
+     * @param seed the seed
+     * @return the generator
+     */
+    public InstanceGenerator setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Sets the weights of travel distance and time in the objective function.
+     *
+     * @param weightTravelDist the weight of the travel distance
+     * @param weightTravelTime the weight of the travel time
+     * @return the generator
+     */
+    public InstanceGenerator setWeights(int weightTravelDist, int weightTravelTime) {
+        this.weightTravelDist = weightTravelDist;
+        this.weightTravelTime = weightTravelTime;
+        return this;
+    }
+
+    /**
+     * Draws an index with probability proportional to its weight, given the
+     * cumulative weights.
+     */
+    private static int draw(Random random, double cumulative[]) {
+        double value = random.nextDouble() * cumulative[cumulative.length - 1];
+        int index = Arrays.binarySearch(cumulative, value);
+        return Math.min(index >= 0 ? index + 1 : -index - 1, cumulative.length - 1);
+    }
+
+    /**
+     * Computes the great-circle (haversine) distance between two clubs, in km.
+     */
+    private static double greatCircleDist(Club clubI, Club clubJ) {
+        double dLat = Math.toRadians(clubJ.latitude - clubI.latitude);
+        double dLon = Math.toRadians(clubJ.longitude - clubI.longitude);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) + Math.cos(Math.toRadians(clubI.latitude))
+          * Math.cos(Math.toRadians(clubJ.latitude)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * 6371.0 * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private static double uniform(Random random, double min, double max) {
+        return min + random.nextDouble() * (max - min);
+    }
+}
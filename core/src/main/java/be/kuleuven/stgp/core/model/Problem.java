@@ -1,9 +1,14 @@
 package be.kuleuven.stgp.core.model;
 
+import be.kuleuven.stgp.core.model.solution.*;
 import be.kuleuven.stgp.core.util.*;
 import com.google.gson.*;
+import com.google.gson.stream.*;
 
 import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
 import java.nio.file.*;
 import java.util.*;
 
@@ -14,6 +19,18 @@ import java.util.*;
  */
 public class Problem {
 
+    /**
+     * Maximum number of teams for which the team-indexed cost matrix is built
+     * (4 bytes per ordered pair of teams, i.e. 256 MB at the limit); larger
+     * instances fall back to the club-indexed matrix.
+     */
+    public static final int MAX_TEAMS_FLAT_MATRIX = 8192;
+
+    /**
+     * Magic number ("STGP") and version of the binary instance format.
+     */
+    public static final int BINARY_MAGIC = 0x53544750, BINARY_VERSION = 1;
+
     public final String name;
 
     public final Club clubs[];
@@ -25,7 +42,27 @@ public class Problem {
     public final int maxTeamSameClub, maxTravelDist, maxTravelTime;
     public final int weightTravelDist, weightTravelTime;
 
-    private final List<Pair<Team, Team>> incompatibleTeams = new LinkedList<>();
+    /**
+     * Team-indexed matrix with the weighted distance and time of every pair
+     * of teams, in row-major order (entry i * teams.length + j), or null if
+     * the instance is too large. Distances and times are read from the
+     * club-indexed matrices: the hot paths only need the weighted cost, and
+     * the travel limits are already in the compatibility bitmatrix.
+     */
+    private int teamMatrix[];
+
+    /**
+     * Compatibility bitmatrix: bit j of row i is set if teams i and j can be
+     * assigned to the same league (every team is compatible with itself). The number of compatible teams of each
+     * team (itself excluded) is stored in compatibleDegrees.
+     */
+    private long compatibleTeams[][];
+    private int compatibleDegrees[];
+
+    private volatile List<Pair<Team, Team>> incompatibleTeams = null;
+    private volatile KdTree clubIndex = null;
+    private volatile SolutionValidator validator = null;
+    private volatile CandidateLists candidateLists = null;
     private final Map<Integer, Club> mapClubs = new HashMap<>();
     private final Map<Integer, Team> mapTeams = new HashMap<>();
 
@@ -62,12 +99,6 @@ public class Problem {
         this.maxTravelTime = maxTravelTime;
         this.weightTravelDist = weightTravelDist;
         this.weightTravelTime = weightTravelTime;
-
-        // updating list of non-compatible teams
-        for (int i = 0; i < teams.length; i++)
-            for (int j = i + 1; j < teams.length; j++)
-                if (!teams[i].isCompatible(teams[j]))
-                    incompatibleTeams.add(new Pair<>(teams[i], teams[j]));
     }
 
     /**
@@ -79,220 +110,447 @@ public class Problem {
     public Problem(String inPath) throws IOException {
         this.name = Paths.get(inPath).getFileName().toString().replace(".prob", "");
 
-        JsonObject json = null;
-        boolean newFormat;
-
-        // checking if input file is a valid JSON file
-        try {
-            JsonParser parser = new JsonParser();
-            json = ( JsonObject ) parser.parse(Files.newBufferedReader(Paths.get(inPath)));
-            newFormat = json.isJsonObject();
-        }
-        catch (Exception ignore) {
-            newFormat = false;
-        }
-
-        if (newFormat) {
-            // reading parameters
-            JsonObject jsonParams = json.get("params").getAsJsonObject();
-            minLeagueSize = jsonParams.get("minLeagueSize").getAsInt();
-            maxLeagueSize = jsonParams.get("maxLeagueSize").getAsInt();
-            maxLevelDiff = jsonParams.get("maxLevelDiff").getAsInt();
-            maxTeamSameClub = jsonParams.get("maxTeamSameClub").getAsInt();
-            maxTravelDist = jsonParams.get("maxTravelDist").getAsInt();
-            maxTravelTime = jsonParams.get("maxTravelTime").getAsInt();
-            weightTravelDist = jsonParams.get("weightTravelDist").getAsInt();
-            weightTravelTime = jsonParams.get("weightTravelTime").getAsInt();
-
-            // reading clubs
-            JsonArray jsonClubs = json.get("clubs").getAsJsonArray();
-            clubs = new Club[jsonClubs.size()];
-            for (int i = 0; i < jsonClubs.size(); i++) {
-                JsonObject jsonClub = jsonClubs.get(i).getAsJsonObject();
-                int id = jsonClub.get("id").getAsInt();
-                int cod = jsonClub.get("cod").getAsInt();
-                String name = jsonClub.get("name").getAsString();
-                int nFields = jsonClub.get("nFields").getAsInt();
-                double latitude = jsonClub.get("latitude").getAsDouble();
-                double longitude = jsonClub.get("longitude").getAsDouble();
-
-                assert clubs[id] == null : "multiple clubs with the same id";
-                if (id != i)
-                    System.err.println("clubs are not sorted in the json file");
-
-                clubs[id] = new Club(this, id, cod, name, nFields, latitude, longitude);
-                mapClubs.put(cod, clubs[id]);
+        // checking the file format (only the first bytes are read)
+        boolean binaryFormat = isBinaryFile(inPath);
+        boolean jsonFormat = !binaryFormat && Util.isJsonFile(inPath);
+
+        if (binaryFormat) {
+            try (FileChannel channel = FileChannel.open(Paths.get(inPath), StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                buffer.getInt();
+                if (buffer.getInt() != BINARY_VERSION)
+                    throw new IOException("unsupported version of the binary instance format");
+
+                // reading parameters
+                minLeagueSize = buffer.getInt();
+                maxLeagueSize = buffer.getInt();
+                maxLevelDiff = buffer.getInt();
+                maxTeamSameClub = buffer.getInt();
+                maxTravelDist = buffer.getInt();
+                maxTravelTime = buffer.getInt();
+                weightTravelDist = buffer.getInt();
+                weightTravelTime = buffer.getInt();
+
+                int nClubs = buffer.getInt();
+                int nTeams = buffer.getInt();
+
+                // reading clubs
+                clubs = new Club[nClubs];
+                for (int i = 0; i < nClubs; i++) {
+                    int cod = buffer.getInt();
+                    int nFields = buffer.getInt();
+                    double latitude = buffer.getDouble();
+                    double longitude = buffer.getDouble();
+                    String name = readBinaryString(buffer);
+                    clubs[i] = new Club(this, i, cod, name, nFields, latitude, longitude);
+                    mapClubs.put(cod, clubs[i]);
+                }
+
+                // reading teams
+                teams = new Team[nTeams];
+                for (int i = 0; i < nTeams; i++) {
+                    int cod = buffer.getInt();
+                    Club club = clubs[buffer.getInt()];
+                    int level = buffer.getInt();
+                    String name = readBinaryString(buffer);
+                    teams[i] = new Team(this, i, cod, name, club, level);
+                    mapTeams.put(cod, teams[i]);
+                    club.addTeam(teams[i]);
+                }
+
+                // reading matrices with distances and times (bulk copies, row by row)
+                travelDists = new int[nClubs][nClubs];
+                travelTimes = new int[nClubs][nClubs];
+                weightedDistTime = new int[nClubs][nClubs];
+                IntBuffer ints = buffer.asIntBuffer();
+                for (int i = 0; i < nClubs; i++)
+                    ints.get(travelDists[i]);
+                for (int i = 0; i < nClubs; i++)
+                    ints.get(travelTimes[i]);
+                for (int i = 0; i < nClubs; i++)
+                    for (int j = 0; j < nClubs; j++)
+                        weightedDistTime[i][j] = travelDists[i][j] * weightTravelDist + travelTimes[i][j] * weightTravelTime;
+            }
+            catch (BufferUnderflowException e) {
+                throw new IOException("binary instance file is truncated", e);
+            }
+        }
+
+        else if (jsonFormat) {
+            Map<String, Integer> params = new HashMap<>();
+            List<Club> clubList = new ArrayList<>();
+            List<Team> teamList = new ArrayList<>();
+            int dists[][] = null, times[][] = null;
+
+            try (JsonReader reader = new JsonReader(Files.newBufferedReader(Paths.get(inPath)))) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        // reading parameters
+                        case "params":
+                            reader.beginObject();
+                            while (reader.hasNext())
+                                params.put(reader.nextName(), reader.nextInt());
+                            reader.endObject();
+                            break;
+
+                        // reading clubs
+                        case "clubs":
+                            reader.beginArray();
+                            while (reader.hasNext()) {
+                                int id = -1, cod = -1, nFields = 0;
+                                double latitude = 0, longitude = 0;
+                                String name = null;
+
+                                reader.beginObject();
+                                while (reader.hasNext()) {
+                                    switch (reader.nextName()) {
+                                        case "id": id = reader.nextInt(); break;
+                                        case "cod": cod = reader.nextInt(); break;
+                                        case "name": name = reader.nextString(); break;
+                                        case "nFields": nFields = reader.nextInt(); break;
+                                        case "latitude": latitude = reader.nextDouble(); break;
+                                        case "longitude": longitude = reader.nextDouble(); break;
+                                        default: reader.skipValue();
+                                    }
+                                }
+                                reader.endObject();
+
+                                if (id != clubList.size())
+                                    System.err.println("clubs are not sorted in the json file");
+
+                                Club club = new Club(this, id, cod, name, nFields, latitude, longitude);
+                                clubList.add(club);
+                                mapClubs.put(cod, club);
+                            }
+                            reader.endArray();
+                            break;
+
+                        // reading teams
+                        case "teams":
+                            if (clubList.isEmpty())
+                                throw new IOException("clubs must be listed before teams in the json file");
+
+                            reader.beginArray();
+                            while (reader.hasNext()) {
+                                int id = -1, cod = -1, clubCod = -1, level = 0;
+                                String name = null, clubName = null;
+
+                                reader.beginObject();
+                                while (reader.hasNext()) {
+                                    switch (reader.nextName()) {
+                                        case "id": id = reader.nextInt(); break;
+                                        case "cod": cod = reader.nextInt(); break;
+                                        case "name": name = reader.nextString(); break;
+                                        case "club": clubName = reader.nextString(); break;
+                                        case "clubCod": clubCod = reader.nextInt(); break;
+                                        case "level": level = reader.nextInt(); break;
+                                        default: reader.skipValue();
+                                    }
+                                }
+                                reader.endObject();
+
+                                Club club = mapClubs.get(clubCod);
+                                assert club.name.equals(clubName) : "invalid club name for team " + club.name + " (" + cod + ")";
+
+                                if (id != teamList.size())
+                                    System.err.println("teams are not sorted in the json file");
+
+                                Team team = new Team(this, id, cod, name != null ? name : clubName, club, level);
+                                teamList.add(team);
+                                mapTeams.put(cod, team);
+                                club.addTeam(team);
+                            }
+                            reader.endArray();
+                            break;
+
+                        // reading matrix with distances and times (straight into the arrays)
+                        case "timeDistMatrix":
+                            if (clubList.isEmpty())
+                                throw new IOException("clubs must be listed before the matrix in the json file");
+
+                            dists = new int[clubList.size()][clubList.size()];
+                            times = new int[clubList.size()][clubList.size()];
+
+                            reader.beginArray();
+                            while (reader.hasNext()) {
+                                int club1Cod = -1, club2Cod = -1, time = 0, dist = 0;
+
+                                reader.beginObject();
+                                while (reader.hasNext()) {
+                                    switch (reader.nextName()) {
+                                        case "src": club1Cod = reader.nextInt(); break;
+                                        case "dest": club2Cod = reader.nextInt(); break;
+                                        case "time": time = reader.nextInt(); break;
+                                        case "dist": dist = reader.nextInt(); break;
+                                        default: reader.skipValue();
+                                    }
+                                }
+                                reader.endObject();
+
+                                Club club1 = mapClubs.get(club1Cod);
+                                Club club2 = mapClubs.get(club2Cod);
+                                dists[club1.id][club2.id] = dist;
+                                dists[club2.id][club1.id] = dist;
+                                times[club1.id][club2.id] = time;
+                                times[club2.id][club1.id] = time;
+                            }
+                            reader.endArray();
+                            break;
+
+                        default:
+                            reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            }
+            catch (IllegalStateException | NumberFormatException e) {
+                throw new IOException("json instance file is invalid: " + e.getMessage(), e);
             }
 
-            // reading teams
-            JsonArray jsonTeams = json.get("teams").getAsJsonArray();
-            teams = new Team[jsonTeams.size()];
-            for (int i = 0; i < jsonTeams.size(); i++) {
-                JsonObject jsonTeam = jsonTeams.get(i).getAsJsonObject();
-                int id = jsonTeam.get("id").getAsInt();
-                int cod = jsonTeam.get("cod").getAsInt();
-                String clubName = jsonTeam.get("club").getAsString();
-                int clubCod = jsonTeam.get("clubCod").getAsInt();
-                int level = jsonTeam.get("level").getAsInt();
-
-                Club club = mapClubs.get(clubCod);
-                assert club.name.equals(clubName) : "invalid club name for team " + club.name + " (" + cod + ")";
-
-                assert teams[id] == null : "multiple clubs with the same id";
-                if (id != i)
-                    System.err.println("teams are not sorted in the json file");
-
-                teams[id] = new Team(this, id, cod, clubName, club, level);
-                mapTeams.put(cod, teams[id]);
-                club.addTeam(teams[i]);
+            minLeagueSize = params.get("minLeagueSize");
+            maxLeagueSize = params.get("maxLeagueSize");
+            maxLevelDiff = params.get("maxLevelDiff");
+            maxTeamSameClub = params.get("maxTeamSameClub");
+            maxTravelDist = params.get("maxTravelDist");
+            maxTravelTime = params.get("maxTravelTime");
+            weightTravelDist = params.get("weightTravelDist");
+            weightTravelTime = params.get("weightTravelTime");
+
+            // placing clubs and teams according to their ids
+            clubs = new Club[clubList.size()];
+            for (Club club : clubList) {
+                assert clubs[club.id] == null : "multiple clubs with the same id";
+                clubs[club.id] = club;
+            }
+            teams = new Team[teamList.size()];
+            for (Team team : teamList) {
+                assert teams[team.id] == null : "multiple teams with the same id";
+                teams[team.id] = team;
             }
 
-            // reading matrices with distances and times
-            travelDists = new int[clubs.length][clubs.length];
-            travelTimes = new int[clubs.length][clubs.length];
+            travelDists = dists != null ? dists : new int[clubs.length][clubs.length];
+            travelTimes = times != null ? times : new int[clubs.length][clubs.length];
             weightedDistTime = new int[clubs.length][clubs.length];
-            JsonArray jsonMatrix = json.get("timeDistMatrix").getAsJsonArray();
-            for (int i = 0; i < jsonMatrix.size(); i++) {
-                JsonObject jsonCell = jsonMatrix.get(i).getAsJsonObject();
-
-                int club1Cod = jsonCell.get("src").getAsInt();
-                int club2Cod = jsonCell.get("dest").getAsInt();
-                Club club1 = mapClubs.get(club1Cod);
-                Club club2 = mapClubs.get(club2Cod);
-
-                int time = jsonCell.get("time").getAsInt();
-                int dist = jsonCell.get("dist").getAsInt();
-
-                travelDists[club1.id][club2.id] = dist;
-                travelDists[club2.id][club1.id] = dist;
-                travelTimes[club1.id][club2.id] = time;
-                travelTimes[club2.id][club1.id] = time;
-                weightedDistTime[club1.id][club2.id] = dist * weightTravelDist + time * weightTravelTime;
-                weightedDistTime[club2.id][club1.id] = dist * weightTravelDist + time * weightTravelTime;
-            }
+            for (int i = 0; i < clubs.length; i++)
+                for (int j = 0; j < clubs.length; j++)
+                    weightedDistTime[i][j] = travelDists[i][j] * weightTravelDist + travelTimes[i][j] * weightTravelTime;
         }
-
         else {
 
-            BufferedReader reader = Files.newBufferedReader(Paths.get(inPath));
-            SimpleTokenizer token;
-            String line;
-
-            // reading minimum and maximum league size
-            token = new SimpleTokenizer(reader.readLine(), ": ");
-            assert token.nextToken().equals("+MinMaxLeagueSize");
-            minLeagueSize = token.nextInt();
-            maxLeagueSize = token.nextInt();
-
-            // reading maximum level difference value
-            token = new SimpleTokenizer(reader.readLine(), ": ");
-            assert token.nextToken().equals("+MaxLevelDiff");
-            maxLevelDiff = token.nextInt();
-
-            // reading maximum number of teams from the same club
-            token = new SimpleTokenizer(reader.readLine(), ": ");
-            assert token.nextToken().equals("+maxTeamSameClub");
-            maxTeamSameClub = token.nextInt();
-
-            // reading maximum travel distance and time
-            token = new SimpleTokenizer(reader.readLine(), ": ");
-            assert token.nextToken().equals("+maxTravelDistTime");
-            maxTravelDist = token.nextInt();
-            maxTravelTime = token.nextInt();
-
-            // reading weights
-            token = new SimpleTokenizer(reader.readLine(), ": ");
-            assert token.nextToken().equals("+Weights");
-            weightTravelDist = token.nextInt();
-            weightTravelTime = token.nextInt();
-
-            // skipping empty line(s)
-            while ((line = reader.readLine()).isEmpty()) ;
-
-            // reading number of clubs
-            token = new SimpleTokenizer(line, ":");
-            assert token.nextToken().equals("+Clubs");
-            int nClubs = token.nextInt();
-
-            // creating clubs
-            clubs = new Club[nClubs];
-            for (int i = 0; i < nClubs; i++) {
-                token = new SimpleTokenizer(reader.readLine(), ";");
-
-                int cod = token.nextInt();
-                String name = token.nextToken();
-                int nFields = token.nextInt();
-                double latitude = token.nextDouble();
-                double longitude = token.nextDouble();
-                clubs[i] = new Club(this, i, cod, name, nFields, latitude, longitude);
-
-                mapClubs.put(cod, clubs[i]);
+            try (ByteTokenizer token = new ByteTokenizer(inPath, ": ")) {
+
+                // reading minimum and maximum league size
+                String header = token.nextToken();
+                assert header.equals("+MinMaxLeagueSize");
+                minLeagueSize = token.nextInt();
+                maxLeagueSize = token.nextInt();
+                token.nextLine();
+
+                // reading maximum level difference value
+                header = token.nextToken();
+                assert header.equals("+MaxLevelDiff");
+                maxLevelDiff = token.nextInt();
+                token.nextLine();
+
+                // reading maximum number of teams from the same club
+                header = token.nextToken();
+                assert header.equals("+maxTeamSameClub");
+                maxTeamSameClub = token.nextInt();
+                token.nextLine();
+
+                // reading maximum travel distance and time
+                header = token.nextToken();
+                assert header.equals("+maxTravelDistTime");
+                maxTravelDist = token.nextInt();
+                maxTravelTime = token.nextInt();
+                token.nextLine();
+
+                // reading weights
+                header = token.nextToken();
+                assert header.equals("+Weights");
+                weightTravelDist = token.nextInt();
+                weightTravelTime = token.nextInt();
+                token.nextLine();
+
+                // skipping empty line(s)
+                token.skipEmptyLines();
+
+                // reading number of clubs
+                token.setSeparators(": ");
+                header = token.nextToken();
+                assert header.equals("+Clubs");
+                int nClubs = token.nextInt();
+                token.nextLine();
+
+                // creating clubs
+                token.setSeparators(";");
+                clubs = new Club[nClubs];
+                for (int i = 0; i < nClubs; i++) {
+                    int cod = token.nextInt();
+                    String name = token.nextToken();
+                    int nFields = token.nextInt();
+                    double latitude = token.nextDouble();
+                    double longitude = token.nextDouble();
+                    clubs[i] = new Club(this, i, cod, name, nFields, latitude, longitude);
+                    token.nextLine();
+
+                    mapClubs.put(cod, clubs[i]);
+                }
+
+                // skipping empty line(s)
+                token.skipEmptyLines();
+
+                // reading number of teams
+                token.setSeparators(": ");
+                header = token.nextToken();
+                assert header.equals("+Teams");
+                int nTeams = token.nextInt();
+                token.nextLine();
+
+                // creating teams
+                token.setSeparators(";");
+                teams = new Team[nTeams];
+                for (int i = 0; i < nTeams; i++) {
+                    int cod = token.nextInt();
+                    String name = token.nextToken();
+                    int codClub = token.nextInt();
+                    Club club = mapClubs.get(codClub);
+                    token.skipToken(); // category code
+                    int level = token.nextInt();
+                    teams[i] = new Team(this, i, cod, name, club, level);
+                    token.nextLine();
+
+                    mapTeams.put(cod, teams[i]);
+                    club.addTeam(teams[i]);
+                }
+
+                // skipping empty line(s)
+                token.skipEmptyLines();
+
+                // reading number of non-zeros in matrices
+                token.setSeparators(": ");
+                header = token.nextToken();
+                assert header.equals("+Distances");
+                int nDistances = token.nextInt();
+                token.nextLine();
+
+                // reading matrices with distances and times
+                token.setSeparators(";");
+                travelDists = new int[nClubs][nClubs];
+                travelTimes = new int[nClubs][nClubs];
+                weightedDistTime = new int[nClubs][nClubs];
+                for (int i = 0; i < nDistances; i++) {
+                    int cod1 = token.nextInt();
+                    int cod2 = token.nextInt();
+                    Club club1 = mapClubs.get(cod1);
+                    Club club2 = mapClubs.get(cod2);
+
+                    int time = token.nextInt();
+                    int dist = token.nextInt();
+                    token.nextLine();
+
+                    travelDists[club1.id][club2.id] = dist;
+                    travelDists[club2.id][club1.id] = dist;
+                    travelTimes[club1.id][club2.id] = time;
+                    travelTimes[club2.id][club1.id] = time;
+                    weightedDistTime[club1.id][club2.id] = dist * weightTravelDist + time * weightTravelTime;
+                    weightedDistTime[club2.id][club1.id] = dist * weightTravelDist + time * weightTravelTime;
+                }
+            }
+            catch (NoSuchElementException | NumberFormatException e) {
+                throw new IOException("instance file is invalid or truncated", e);
             }
+        }
+
+        // building the team-indexed matrix and the compatibility bitmatrix
+        initTeamMatrix();
+        initCompatibility();
+    }
 
-            // skipping empty line(s)
-            while ((line = reader.readLine()).isEmpty()) ;
-
-            // reading number of teams
-            token = new SimpleTokenizer(line, ":");
-            assert token.nextToken().equals("+Teams");
-            int nTeams = token.nextInt();
-
-            // creating teams
-            teams = new Team[nTeams];
-            for (int i = 0; i < nTeams; i++) {
-                token = new SimpleTokenizer(reader.readLine(), ";");
-
-                int cod = token.nextInt();
-                String name = token.nextToken();
-                int codClub = token.nextInt();
-                Club club = mapClubs.get(codClub);
-                int codCategory = token.nextInt();
-                int level = token.nextInt();
-                teams[i] = new Team(this, i, cod, name, club, level);
-
-                mapTeams.put(cod, teams[i]);
-                club.addTeam(teams[i]);
+    /**
+     * Gets the spatial index over the clubs' coordinates. The points of the
+     * tree are the clubs' ids, projected with a sinusoidal projection
+     * (see getClubX and getClubY). The index is built on the first call.
+     *
+     * @return the spatial index over the clubs
+     */
+    public KdTree getClubIndex() {
+        KdTree index = clubIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = clubIndex;
+                if (index == null) {
+                    double xs[] = new double[clubs.length], ys[] = new double[clubs.length];
+                    for (Club club : clubs) {
+                        xs[club.id] = getClubX(club);
+                        ys[club.id] = getClubY(club);
+                    }
+                    clubIndex = index = new KdTree(xs, ys);
+                }
             }
+        }
+        return index;
+    }
 
-            // skipping empty line(s)
-            while ((line = reader.readLine()).isEmpty()) ;
-
-            // reading number of non-zeros in matrices
-            token = new SimpleTokenizer(line, ":");
-            assert token.nextToken().equals("+Distances");
-            int nDistances = token.nextInt();
-
-            // reading matrices with distances and times
-            travelDists = new int[nClubs][nClubs];
-            travelTimes = new int[nClubs][nClubs];
-            weightedDistTime = new int[nClubs][nClubs];
-            for (int i = 0; i < nDistances; i++) {
-                token = new SimpleTokenizer(reader.readLine(), ";");
-
-                int cod1 = token.nextInt();
-                int cod2 = token.nextInt();
-                Club club1 = mapClubs.get(cod1);
-                Club club2 = mapClubs.get(cod2);
-
-                int time = token.nextInt();
-                int dist = token.nextInt();
-
-                travelDists[club1.id][club2.id] = dist;
-                travelDists[club2.id][club1.id] = dist;
-                travelTimes[club1.id][club2.id] = time;
-                travelTimes[club2.id][club1.id] = time;
-                weightedDistTime[club1.id][club2.id] = dist * weightTravelDist + time * weightTravelTime;
-                weightedDistTime[club2.id][club1.id] = dist * weightTravelDist + time * weightTravelTime;
+    /**
+     * Gets the candidate lists of the problem's teams, with (up to)
+     * CandidateLists.DEFAULT_SIZE candidates per team. The lists are built on
+     * the first call.
+     *
+     * @return the candidate lists
+     */
+    public CandidateLists getCandidateLists() {
+        CandidateLists lists = candidateLists;
+        if (lists == null) {
+            synchronized (this) {
+                lists = candidateLists;
+                if (lists == null)
+                    candidateLists = lists = new CandidateLists(this, CandidateLists.DEFAULT_SIZE);
             }
+        }
+        return lists;
+    }
 
-            reader.close();
+    /**
+     * Gets the validator of the problem's solutions and leagues, which is
+     * shared by all callers (it can be used by several threads at once). The
+     * validator is created on the first call.
+     *
+     * @return the solution validator
+     */
+    public SolutionValidator getValidator() {
+        SolutionValidator solutionValidator = validator;
+        if (solutionValidator == null) {
+            synchronized (this) {
+                solutionValidator = validator;
+                if (solutionValidator == null)
+                    validator = solutionValidator = new SolutionValidator(this);
+            }
         }
+        return solutionValidator;
+    }
 
-        // updating list of non-compatible teams
-        for (int i = 0; i < teams.length; i++)
-            for (int j = i + 1; j < teams.length; j++)
-                if (!teams[i].isCompatible(teams[j]))
-                    incompatibleTeams.add(new Pair<>(teams[i], teams[j]));
+    /**
+     * Gets the projected x coordinate (in km) of a club, as used by the club
+     * index.
+     *
+     * @param club the club
+     * @return the projected x coordinate of the club
+     */
+    public double getClubX(Club club) {
+        return club.longitude * Math.cos(Math.toRadians(club.latitude)) * 111.32;
+    }
+
+    /**
+     * Gets the projected y coordinate (in km) of a club, as used by the club
+     * index.
+     *
+     * @param club the club
+     * @return the projected y coordinate of the club
+     */
+    public double getClubY(Club club) {
+        return club.latitude * 110.57;
     }
 
     /**
@@ -306,10 +564,99 @@ public class Problem {
     }
 
     /**
-     * Gets list of incompatible pairs of teams.
+     * Checks whether two teams are compatible, i.e. if both can be in the same
+     * league.
+     *
+     * @param i the first team's id
+     * @param j the second team's id
+     * @return true if teams i and j can be in the same league and false
+     * otherwise
+     */
+    public boolean isCompatible(int i, int j) {
+        return (compatibleTeams[i][j >>> 6] & (1L << j)) != 0;
+    }
+
+    /**
+     * Gets the weighted distance and time between two teams.
+     *
+     * @param i the first team's id
+     * @param j the second team's id
+     * @return the weighted distance and time between teams i and j
+     */
+    public int pairCost(int i, int j) {
+        if (teamMatrix != null)
+            return teamMatrix[i * teams.length + j];
+        return weightedDistTime[teams[i].club.id][teams[j].club.id];
+    }
+
+    /**
+     * Gets the travel distance between two teams.
+     *
+     * @param i the first team's id
+     * @param j the second team's id
+     * @return the travel distance between teams i and j
+     */
+    public int pairDist(int i, int j) {
+        return travelDists[teams[i].club.id][teams[j].club.id];
+    }
+
+    /**
+     * Gets the travel time between two teams.
+     *
+     * @param i the first team's id
+     * @param j the second team's id
+     * @return the travel time between teams i and j
+     */
+    public int pairTime(int i, int j) {
+        return travelTimes[teams[i].club.id][teams[j].club.id];
+    }
+
+    /**
+     * Gets the number of teams compatible with a given team (the team itself
+     * is not counted).
+     *
+     * @param i the team's id
+     * @return the number of teams that can be in the same league as team i
+     */
+    public int getCompatibleDegree(int i) {
+        return compatibleDegrees[i];
+    }
+
+    /**
+     * Gets the row of the compatibility bitmatrix of a team (bit j is set if
+     * team j is compatible with it). The array must not be modified.
+     *
+     * @param i the team's id
+     * @return the compatibility bits of team i
+     */
+    public long[] getCompatibleRow(int i) {
+        return compatibleTeams[i];
+    }
+
+    /**
+     * Gets list of incompatible pairs of teams. The list is built (once) on
+     * the first call, from the compatibility bitmatrix.
      */
     public List<Pair<Team, Team>> getIncompatibleTeams() {
-        return Collections.unmodifiableList(incompatibleTeams);
+        List<Pair<Team, Team>> list = incompatibleTeams;
+        if (list == null) {
+            synchronized (this) {
+                list = incompatibleTeams;
+                if (list == null) {
+                    long nPairs = 0;
+                    for (int i = 0; i < teams.length; i++)
+                        nPairs += teams.length - 1 - compatibleDegrees[i];
+
+                    List<Pair<Team, Team>> pairs = new ArrayList<>(( int ) (nPairs / 2));
+                    for (int i = 0; i < teams.length; i++)
+                        for (int j = i + 1; j < teams.length; j++)
+                            if (!isCompatible(i, j))
+                                pairs.add(new Pair<>(teams[i], teams[j]));
+                    incompatibleTeams = list = Collections.unmodifiableList(pairs);
+                }
+            }
+        }
+        return list;
     }
 
     /**
@@ -322,6 +669,98 @@ public class Problem {
         return mapTeams.get(cod);
     }
 
+    /**
+     * Checks whether a file starts with the magic number of the binary
+     * instance format.
+     *
+     * @param inPath the input file path
+     * @return true if the file is in binary format and false otherwise
+     * @throws IOException if any error occurs while reading the file
+     */
+    private static boolean isBinaryFile(String inPath) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(Paths.get(inPath)))) {
+            return in.readInt() == BINARY_MAGIC;
+        }
+        catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reads a (length-prefixed, UTF-8) string from a binary instance file.
+     *
+     * @param buffer the buffer
+     * @return the string read
+     */
+    private static String readBinaryString(ByteBuffer buffer) {
+        byte bytes[] = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a (length-prefixed, UTF-8) string to a binary instance file.
+     *
+     * @param out    the output stream
+     * @param string the string to write
+     * @throws IOException if any error occurs while writing the string
+     */
+    private static void writeBinaryString(DataOutputStream out, String string) throws IOException {
+        byte bytes[] = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Builds the compatibility bitmatrix and the compatible degree of each
+     * team.
+     */
+    private void initCompatibility() {
+        long bits[][] = new long[teams.length][(teams.length + 63) >>> 6];
+        int degrees[] = new int[teams.length];
+
+        for (int i = 0; i < teams.length; i++) {
+            Team teamI = teams[i];
+            bits[i][i >>> 6] |= 1L << i;
+            for (int j = i + 1; j < teams.length; j++) {
+                Team teamJ = teams[j];
+                if (Math.abs(teamI.level - teamJ.level) <= maxLevelDiff
+                  && pairDist(i, j) <= maxTravelDist
+                  && pairTime(i, j) <= maxTravelTime) {
+                    bits[i][j >>> 6] |= 1L << j;
+                    bits[j][i >>> 6] |= 1L << i;
+                    degrees[i]++;
+                    degrees[j]++;
+                }
+            }
+        }
+
+        compatibleTeams = bits;
+        compatibleDegrees = degrees;
+        incompatibleTeams = null;
+    }
+
+    /**
+     * Builds the team-indexed matrix from the club-indexed matrix. Nothing is
+     * built if the instance has more than MAX_TEAMS_FLAT_MATRIX teams or if
+     * the matrix would take more than a quarter of the maximum heap size.
+     */
+    private void initTeamMatrix() {
+        long bytes = 4L * teams.length * teams.length;
+        if (teams.length > MAX_TEAMS_FLAT_MATRIX || bytes > Runtime.getRuntime().maxMemory() / 4) {
+            teamMatrix = null;
+            return;
+        }
+
+        int matrix[] = new int[teams.length * teams.length];
+        for (int i = 0, k = 0; i < teams.length; i++) {
+            int costs[] = weightedDistTime[teams[i].club.id];
+            for (int j = 0; j < teams.length; j++, k++)
+                matrix[k] = costs[teams[j].club.id];
+        }
+        teamMatrix = matrix;
+    }
+
     /**
      * Writes problem to a file.
      *
@@ -332,6 +771,58 @@ public class Problem {
         writeJson(outPath);
     }
 
+    /**
+     * Writes problem to a binary file, which can be read back (memory-mapped)
+     * by the Problem(String) constructor. The file contains a header with the
+     * parameters, the clubs and teams tables and the full distance and time
+     * matrices (row-major).
+     *
+     * @param outPath the output file path
+     * @throws IOException if any error occurs while writing the file
+     */
+    public void writeBinary(String outPath) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(Paths.get(outPath)), 1 << 16))) {
+            // printing header and parameters
+            out.writeInt(BINARY_MAGIC);
+            out.writeInt(BINARY_VERSION);
+            out.writeInt(minLeagueSize);
+            out.writeInt(maxLeagueSize);
+            out.writeInt(maxLevelDiff);
+            out.writeInt(maxTeamSameClub);
+            out.writeInt(maxTravelDist);
+            out.writeInt(maxTravelTime);
+            out.writeInt(weightTravelDist);
+            out.writeInt(weightTravelTime);
+            out.writeInt(clubs.length);
+            out.writeInt(teams.length);
+
+            // printing clubs
+            for (Club club : clubs) {
+                out.writeInt(club.cod);
+                out.writeInt(club.nFields);
+                out.writeDouble(club.latitude);
+                out.writeDouble(club.longitude);
+                writeBinaryString(out, club.name);
+            }
+
+            // printing teams
+            for (Team team : teams) {
+                out.writeInt(team.cod);
+                out.writeInt(team.club.id);
+                out.writeInt(team.level);
+                writeBinaryString(out, team.name);
+            }
+
+            // printing matrices with distances and times
+            for (int row[] : travelDists)
+                for (int value : row)
+                    out.writeInt(value);
+            for (int row[] : travelTimes)
+                for (int value : row)
+                    out.writeInt(value);
+        }
+    }
+
     /**
      * Writes problem to a json file.
      *
@@ -460,7 +951,7 @@ public class Problem {
         writer.printf("+maxTravelDistTime: %d %d\n", maxTravelDist, maxTravelTime);
 
         // printing weights
-        writer.printf("+Weights: %.0f %.0f\n", weightTravelDist, weightTravelTime);
+        writer.printf("+Weights: %d %d\n", weightTravelDist, weightTravelTime);
 
         writer.println();
 
@@ -492,12 +983,13 @@ public class Problem {
 
         writer.println();
 
-        // printing teams
+        // printing teams (divisions are not used, so category code 0 is
+        // written for every team)
         List<Team> teamsFiltered = new LinkedList<>(Arrays.asList(teams));
         teamsFiltered.sort((a, b) -> Integer.compare(a.cod, b.cod));
         writer.printf("+Teams: %d\n", teamsFiltered.size());
         for (Team team : teamsFiltered)
-            writer.printf("%d;%s;%d;%d\n", team.cod, team.name, team.club.cod, team.level);
+            writer.printf("%d;%s;%d;%d;%d\n", team.cod, team.name, team.club.cod, 0, team.level);
 
         writer.println();
 
@@ -725,6 +1217,7 @@ public class Problem {
                 throw new IllegalArgumentException("club " + id + " already set");
             Club club = new Club(problem, id, stam, name, nFields, latitude, longitude);
             problem.clubs[id] = club;
+            problem.mapClubs.put(stam, club);
             return club;
         }
 
@@ -745,6 +1238,7 @@ public class Problem {
                 throw new IllegalArgumentException("teams " + id + " already set");
             Team team = new Team(problem, id, cod, name, club, level);
             problem.teams[id] = team;
+            problem.mapTeams.put(cod, team);
             club.teams.add(team);
             return team;
         }
@@ -780,11 +1274,21 @@ public class Problem {
         }
 
         /**
-         * Gets problem.
+         * Gets problem. The weighted distance/time matrix, the team-indexed
+         * matrix and the compatibility bitmatrix are (re)built at this point,
+         * so all clubs, teams, times and distances must have already been set.
          *
          * @return the problem
          */
         public Problem getProblem() {
+            if (problem != null) {
+                for (int i = 0; i < problem.clubs.length; i++)
+                    for (int j = 0; j < problem.clubs.length; j++)
+                        problem.weightedDistTime[i][j] = problem.travelDists[i][j] * problem.weightTravelDist
+                          + problem.travelTimes[i][j] * problem.weightTravelTime;
+                problem.initTeamMatrix();
+                problem.initCompatibility();
+            }
             return problem;
         }
 
@@ -44,7 +44,7 @@ public class Team implements Comparable<Team> {
      * @return the travel distance to another team
      */
     public int getTravelDistTo(Team team) {
-        return club.getTravelDistTo(team.club);
+        return problem.pairDist(id, team.id);
     }
 
     /**
@@ -54,7 +54,7 @@ public class Team implements Comparable<Team> {
      * @return the travel time to another team
      */
     public int getTravelTimeTo(Team team) {
-        return club.getTravelTimeTo(team.club);
+        return problem.pairTime(id, team.id);
     }
 
     /**
@@ -64,7 +64,19 @@ public class Team implements Comparable<Team> {
      * @return the weighted distance and time to another team
      */
     public int getWeightedDistTimeTo(Team team) {
-        return problem.weightedDistTime[club.id][team.club.id];
+        return problem.pairCost(id, team.id);
+    }
+
+    /**
+     * Gets the cost of this team and another team being in the same league,
+     * i.e. the sum of the weighted distance and time of the trips in both
+     * directions.
+     *
+     * @param team the other team
+     * @return the weighted distance and time of both trips between the teams
+     */
+    public int getPairCost(Team team) {
+        return problem.pairCost(id, team.id) + problem.pairCost(team.id, id);
     }
 
     @Override
@@ -81,8 +93,6 @@ public class Team implements Comparable<Team> {
      * argument and false otherwise
      */
     public boolean isCompatible(Team team) {
-        return Math.abs(level - team.level) <= problem.maxLevelDiff
-          && getTravelDistTo(team) <= problem.maxTravelDist
-          && getTravelTimeTo(team) <= problem.maxTravelTime;
+        return problem.isCompatible(id, team.id);
     }
 }
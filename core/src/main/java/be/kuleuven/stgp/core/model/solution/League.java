@@ -1,22 +1,23 @@
 package be.kuleuven.stgp.core.model.solution;
 
 import be.kuleuven.stgp.core.model.*;
-import be.kuleuven.stgp.core.util.*;
 
 import java.io.*;
 import java.util.*;
 
 /**
- * This class represents a league.
+ * This class represents a league. The teams are stored in a bitset indexed by
+ * the teams' ids, so that membership queries, comparisons and copies work
+ * word by word; iteration visits the teams in increasing id order.
  *
  * @author Tulio Toffolo
  */
 public class League implements Iterable<Team> {
 
     public final Problem problem;
-    public NavigableSet<Team> teams = new TreeSet<>();
 
-    //private boolean[] teamsArray;
+    private long teamsBits[];
+    private int nTeams;
     private int objective, totalTravelDist, totalTravelTime;
 
     /**
@@ -26,7 +27,7 @@ public class League implements Iterable<Team> {
      */
     public League(Problem problem) {
         this.problem = problem;
-        //this.teamsArray = new boolean[problem.teams.length];
+        this.teamsBits = new long[(problem.teams.length + 63) >>> 6];
     }
 
     /**
@@ -35,14 +36,17 @@ public class League implements Iterable<Team> {
      * @param teamToAdd the team to add
      */
     public void add(Team teamToAdd) {
-        for (Team team : teams) {
+        if (contains(teamToAdd.id))
+            return;
+
+        for (Team team : this) {
             objective += team.getWeightedDistTimeTo(teamToAdd) * 2;
             totalTravelDist += team.getTravelDistTo(teamToAdd) * 2;
             totalTravelTime += team.getTravelTimeTo(teamToAdd) * 2;
         }
 
-        teams.add(teamToAdd);
-        //teamsArray[teamToAdd.id] = true;
+        teamsBits[teamToAdd.id >>> 6] |= 1L << teamToAdd.id;
+        nTeams++;
     }
 
     /**
@@ -54,8 +58,8 @@ public class League implements Iterable<Team> {
     public League clone(Solution solution) {
         League copy = new League(problem);
 
-        for (Team team : teams)
-            copy.teams.add(team);
+        copy.teamsBits = teamsBits.clone();
+        copy.nTeams = nTeams;
         copy.objective = objective;
         copy.totalTravelDist = totalTravelDist;
         copy.totalTravelTime = totalTravelTime;
@@ -70,8 +74,7 @@ public class League implements Iterable<Team> {
      * @return true if the team is assigned to this league and false otherwise
      */
     public boolean contains(Team team) {
-        return teams.contains(team);
-        //return teamsArray[team.id];
+        return contains(team.id);
     }
 
     /**
@@ -81,8 +84,7 @@ public class League implements Iterable<Team> {
      * @return true if the team is assigned to this league and false otherwise
      */
     public boolean contains(int teamId) {
-        return teams.contains(problem.teams[teamId]);
-        //return teamsArray[teamId];
+        return (teamsBits[teamId >>> 6] & (1L << teamId)) != 0;
     }
 
     @Override
@@ -91,7 +93,7 @@ public class League implements Iterable<Team> {
         if (o == null || getClass() != o.getClass()) return false;
 
         League league = ( League ) o;
-        return teams.equals(league.teams);
+        return nTeams == league.nTeams && Arrays.equals(teamsBits, league.teamsBits);
     }
 
     /**
@@ -123,12 +125,12 @@ public class League implements Iterable<Team> {
 
     @Override
     public int hashCode() {
-        return teams.hashCode();
+        return Arrays.hashCode(teamsBits);
     }
 
     @Override
     public Iterator<Team> iterator() {
-        return teams.iterator();
+        return new TeamIterator();
     }
 
     /**
@@ -139,13 +141,14 @@ public class League implements Iterable<Team> {
      * assigned to this league
      */
     public boolean remove(Team teamToRemove) {
-        if (teams.remove(teamToRemove)) {
-            for (Team team : teams) {
+        if (contains(teamToRemove.id)) {
+            teamsBits[teamToRemove.id >>> 6] &= ~(1L << teamToRemove.id);
+            nTeams--;
+            for (Team team : this) {
                 objective -= team.getWeightedDistTimeTo(teamToRemove) * 2;
                 totalTravelDist -= team.getTravelDistTo(teamToRemove) * 2;
                 totalTravelTime -= team.getTravelTimeTo(teamToRemove) * 2;
             }
-            //teamsArray[teamToRemove.id] = false;
             return true;
         }
         return false;
@@ -157,7 +160,20 @@ public class League implements Iterable<Team> {
      * @return the n teams
      */
     public int size() {
-        return teams.size();
+        return nTeams;
+    }
+
+    /**
+     * Gets the teams of this league, sorted by id.
+     *
+     * @return an array with the teams of this league
+     */
+    public Team[] toArray() {
+        Team array[] = new Team[nTeams];
+        int i = 0;
+        for (Team team : this)
+            array[i++] = team;
+        return array;
     }
 
     /**
@@ -167,58 +183,34 @@ public class League implements Iterable<Team> {
      * @return true if the league is valid and false otherwise
      */
     public boolean validate(PrintStream output) {
-        boolean valid = true;
-
-        if (teams.size() < problem.minLeagueSize) {
-            valid = false;
-            Util.safePrintf(output, "League has less teams than the minimum required.\n");
-        }
-        if (teams.size() > problem.maxLeagueSize) {
-            valid = false;
-            Util.safePrintf(output, "League has more teams than the maximum allowed.\n");
-        }
+        return problem.getValidator().validate(this, output, false);
+    }
 
-        for (Team teamI : teams) {
-            NavigableSet<Team> nextTeams = teams.tailSet(teamI, false);
-            for (Team teamJ : nextTeams) {
-                // teams must have the same category
-                // maximum distance
-                if (teamI.getTravelDistTo(teamJ) > problem.maxTravelDist) {
-                    valid = false;
-                    Util.safePrintf(output, "Maximum distance constraint not respected among teams %d and %d.\n", teamI.cod, teamJ.cod);
-                }
-
-                // maximum travel time
-                if (teamI.getTravelTimeTo(teamJ) > problem.maxTravelTime) {
-                    valid = false;
-                    Util.safePrintf(output, "Maximum travel time constraint not respected among teams %d and %d.\n", teamI.cod, teamJ.cod);
-                }
-
-                // maximum level difference
-                if (Math.abs(teamI.level - teamJ.level) > problem.maxLevelDiff) {
-                    valid = false;
-                    Util.safePrintf(output, "Teams %d and %d are from different category but are allocated in the same league.\n", teamI.cod, teamJ.cod);
-                }
-            }
-        }
+    /**
+     * Iterator over the teams of the league, in increasing id order.
+     */
+    private class TeamIterator implements Iterator<Team> {
 
-        Set<Club> clubSet = new HashSet<>();
-        for (Team team : teams)
-            clubSet.add(team.club);
+        private int index = -1;
+        private long word = teamsBits.length > 0 ? teamsBits[0] : 0;
 
-        // maximum number of teams from the same club
-        for (Club club : clubSet) {
-            int counter = 0;
-            for (Team team : teams) {
-                if (club == team.club)
-                    counter++;
-            }
-            if (counter > problem.maxTeamSameClub) {
-                valid = false;
-                Util.safePrintf(output, "Too many teams from club %d in the same league..\n", club.cod);
+        @Override
+        public boolean hasNext() {
+            while (word == 0) {
+                if (++index >= teamsBits.length - 1)
+                    return false;
+                word = teamsBits[index + 1];
             }
+            return true;
         }
 
-        return valid;
+        @Override
+        public Team next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            int teamId = ((index + 1) << 6) + Long.numberOfTrailingZeros(word);
+            word &= word - 1;
+            return problem.teams[teamId];
+        }
     }
 }
@@ -3,6 +3,7 @@ package be.kuleuven.stgp.core.model.solution;
 import be.kuleuven.stgp.core.model.*;
 import be.kuleuven.stgp.core.util.*;
 import com.google.gson.*;
+import com.google.gson.stream.*;
 
 import java.io.*;
 import java.nio.file.*;
@@ -120,17 +121,7 @@ public class Solution implements Iterable<League> {
      * @param inPath the input file path
      */
     public void read(String inPath) throws IOException {
-        JsonObject json = null;
-
-        try {
-            json = ( JsonObject ) new JsonParser().parse(Files.newBufferedReader(Paths.get(inPath)));
-        }
-        catch (Exception ignore) {
-            readSol(inPath, System.out);
-            return;
-        }
-
-        if (json != null && json.isJsonObject())
+        if (Util.isJsonFile(inPath))
             readJson(inPath, System.out);
         else
             readSol(inPath, System.out);
@@ -147,28 +138,58 @@ public class Solution implements Iterable<League> {
         reset();
 
 
-        // reading number of leagues and calculated costs
-        try {
-            JsonObject json = ( JsonObject ) new JsonParser().parse(Files.newBufferedReader(Paths.get(inPath)));
-            int fileObjective = json.get("objective").getAsInt();
-
-            JsonArray jsonLeagues = json.get("leagues").getAsJsonArray();
-            for (int i = 0; i < jsonLeagues.size(); i++) {
-                JsonArray jsonLeague = jsonLeagues.get(i).getAsJsonObject().get("teams").getAsJsonArray();
-                League league = new League(problem);
-                for (JsonElement jsonTeam : jsonLeague) {
-                    int cod = jsonTeam.getAsInt();
-                    Team team = problem.getTeamFromCod(cod);
-                    if (team != null) {
-                        league.add(team);
-                    }
-                    else {
-                        Util.safePrintf(output, "Invalid team code: %d\n", cod);
-                        //throw new IllegalArgumentException(String.format("Invalid team code: %d\n", cod));
-                    }
+        // reading leagues and calculated costs, token by token
+        try (JsonReader reader = new JsonReader(Files.newBufferedReader(Paths.get(inPath)))) {
+            Integer fileObjective = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "objective":
+                        fileObjective = reader.nextInt();
+                        break;
+
+                    case "leagues":
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            League league = new League(problem);
+
+                            reader.beginObject();
+                            while (reader.hasNext()) {
+                                if (!reader.nextName().equals("teams")) {
+                                    reader.skipValue();
+                                    continue;
+                                }
+
+                                reader.beginArray();
+                                while (reader.hasNext()) {
+                                    int cod = reader.nextInt();
+                                    Team team = problem.getTeamFromCod(cod);
+                                    if (team != null) {
+                                        league.add(team);
+                                    }
+                                    else {
+                                        Util.safePrintf(output, "Invalid team code: %d\n", cod);
+                                        //throw new IllegalArgumentException(String.format("Invalid team code: %d\n", cod));
+                                    }
+                                }
+                                reader.endArray();
+                            }
+                            reader.endObject();
+
+                            addLeague(league);
+                        }
+                        reader.endArray();
+                        break;
+
+                    default:
+                        reader.skipValue();
                 }
-                addLeague(league);
             }
+            reader.endObject();
+
+            if (fileObjective == null)
+                throw new IllegalArgumentException("Solution file is invalid.");
 
             if (fileObjective != objective) {
                 Util.safePrintf(output, "Invalid objective value: %d != %d\n", fileObjective, objective);
@@ -176,7 +197,7 @@ public class Solution implements Iterable<League> {
                 //throw new IllegalArgumentException(String.format("Invalid objective value: %d != %d\n", fileObjective, objective));
             }
         }
-        catch (NullPointerException e) {
+        catch (IllegalStateException | NumberFormatException | MalformedJsonException e) {
             throw new IllegalArgumentException("Solution file is invalid.");
         }
     }
@@ -190,18 +211,14 @@ public class Solution implements Iterable<League> {
      */
     public void readSol(String inPath, PrintStream output) throws IOException {
         reset();
-        BufferedReader reader = Files.newBufferedReader(Paths.get(inPath));
 
         // reading number of leagues and calculated costs
-
-        try {
-            SimpleTokenizer token = new SimpleTokenizer(reader.readLine(), ";");
+        try (ByteTokenizer token = new ByteTokenizer(inPath, ";")) {
             int nLeagues = token.nextInt();
             int fileObjective = token.nextInt();
+            token.nextLine();
 
             for (int i = 0; i < nLeagues; i++) {
-                token = new SimpleTokenizer(reader.readLine(), ";");
-
                 League league = new League(problem);
                 int nTeams = token.nextInt();
                 for (int j = 0; j < nTeams; j++) {
@@ -215,6 +232,7 @@ public class Solution implements Iterable<League> {
                         //throw new IllegalArgumentException(String.format("Invalid team code: %d\n", cod));
                     }
                 }
+                token.nextLine();
 
                 addLeague(league);
             }
@@ -225,11 +243,9 @@ public class Solution implements Iterable<League> {
                 //throw new IllegalArgumentException(String.format("Invalid objective value: %d != %d\n", fileObjective, objective));
             }
         }
-        catch (NullPointerException e) {
+        catch (NoSuchElementException | NumberFormatException e) {
             throw new IllegalArgumentException("Solution file is invalid.");
         }
-
-        reader.close();
     }
 
     /**
@@ -259,43 +275,19 @@ public class Solution implements Iterable<League> {
      * @return true if solution is valid and false otherwise
      */
     public boolean validate(PrintStream output) {
-        boolean valid = true;
-
-        // checking team allocations
-        boolean allocs[] = new boolean[problem.teams.length];
-        for (League league : leagues) {
-            for (Team team : league) {
-                if (allocs[team.id]) {
-                    valid = false;
-                    Util.safePrintf(output, "Team %d (%s) is assigned to more than one league\n", team.cod, team.name);
-                }
-                allocs[team.id] |= true;
-            }
-        }
-
-        // checking if all teams are assigned to first league
-        for (int t = 0; t < problem.teams.length; t++) {
-            if (!allocs[t]) {
-                Team team = problem.teams[t];
-                valid = false;
-                Util.safePrintf(output, "Team %d (%s) is not allocated to any league\n", team.cod, team.name);
-            }
-        }
-
-        // check whether intra-league constraints are respected
-        for (League league : leagues)
-            valid &= league.validate(output);
-
-        // checking total objective
-        int calcObj = 0;
-        for (League league : leagues)
-            calcObj += league.getObjective();
-        if (objective != calcObj && valid) {
-            valid = false;
-            Util.safePrintf(output, "Objective value mismatch: %d vs %d\n", calcObj, objective);
-        }
+        return validate(output, false);
+    }
 
-        return valid;
+    /**
+     * Validates the solution considering objective value and constraints.
+     *
+     * @param output      the output stream (for log purposes)
+     * @param stopAtFirst whether the validation stops at the first violation
+     * @return true if solution is valid and false otherwise
+     * @see SolutionValidator
+     */
+    public boolean validate(PrintStream output, boolean stopAtFirst) {
+        return problem.getValidator().validate(this, output, stopAtFirst);
     }
 
     /**
@@ -338,7 +330,7 @@ public class Solution implements Iterable<League> {
 
             JsonArray jsonTeams = new JsonArray();
             for (Team team : league)
-                jsonTeams.add(team.id);
+                jsonTeams.add(team.cod);
             jsonLeague.add("teams", jsonTeams);
 
             jsonLeagues.add(jsonLeague);
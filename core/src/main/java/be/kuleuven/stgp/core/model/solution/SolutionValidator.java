@@ -0,0 +1,265 @@
+package be.kuleuven.stgp.core.model.solution;
+
+import be.kuleuven.stgp.core.model.*;
+import be.kuleuven.stgp.core.util.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * This class validates solutions (and leagues). Pairs of teams are checked
+ * against the compatibility bitmatrix of the problem (the distance, time and
+ * level of a pair are only inspected to report a violation), the number of
+ * teams per club is counted with an int array indexed by club id and the
+ * cost of each league is recomputed from the team-indexed matrix. Large
+ * solutions have their leagues validated in parallel on a ForkJoinPool.
+ * <p>
+ * Optionally, the validation stops at the first violation found, which is
+ * the cheapest way of checking feasibility when no report is needed.
+ *
+ * @author Tulio Toffolo
+ */
+public class SolutionValidator {
+
+    /**
+     * Minimum number of leagues for the validation to run in parallel.
+     */
+    public static final int PARALLEL_THRESHOLD = 32;
+
+    public final Problem problem;
+
+    private final ForkJoinPool pool;
+    private final ThreadLocal<int[]> clubCounters;
+
+    /**
+     * Instantiates a new SolutionValidator that uses the common ForkJoinPool.
+     *
+     * @param problem the problem
+     */
+    public SolutionValidator(Problem problem) {
+        this(problem, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Instantiates a new SolutionValidator.
+     *
+     * @param problem the problem
+     * @param pool    the pool used to validate leagues in parallel
+     */
+    public SolutionValidator(Problem problem, ForkJoinPool pool) {
+        this.problem = problem;
+        this.pool = pool;
+        this.clubCounters = ThreadLocal.withInitial(() -> new int[problem.clubs.length]);
+    }
+
+    /**
+     * Validates a league, considering costs and constraints.
+     *
+     * @param league      the league
+     * @param output      the output stream (for log purposes)
+     * @param stopAtFirst whether the validation stops at the first violation
+     * @return true if the league is valid and false otherwise
+     */
+    public boolean validate(League league, PrintStream output, boolean stopAtFirst) {
+        List<String> messages = output != null ? new ArrayList<>() : null;
+        boolean valid = validateLeague(league, messages, stopAtFirst, new AtomicBoolean()) >= 0;
+        print(output, messages);
+        return valid;
+    }
+
+    /**
+     * Validates a solution, considering objective value and constraints.
+     *
+     * @param solution    the solution
+     * @param output      the output stream (for log purposes)
+     * @param stopAtFirst whether the validation stops at the first violation
+     * @return true if the solution is valid and false otherwise
+     */
+    public boolean validate(Solution solution, PrintStream output, boolean stopAtFirst) {
+        boolean valid = true;
+
+        // checking team allocations
+        boolean allocs[] = new boolean[problem.teams.length];
+        for (League league : solution) {
+            for (Team team : league) {
+                if (allocs[team.id]) {
+                    valid = false;
+                    Util.safePrintf(output, "Team %d (%s) is assigned to more than one league\n", team.cod, team.name);
+                    if (stopAtFirst) return false;
+                }
+                allocs[team.id] = true;
+            }
+        }
+
+        // checking if all teams are assigned to first league
+        for (int t = 0; t < problem.teams.length; t++) {
+            if (!allocs[t]) {
+                Team team = problem.teams[t];
+                valid = false;
+                Util.safePrintf(output, "Team %d (%s) is not allocated to any league\n", team.cod, team.name);
+                if (stopAtFirst) return false;
+            }
+        }
+
+        // check whether intra-league constraints are respected (the messages
+        // of each league are printed in order after all leagues are checked)
+        int nLeagues = solution.getNLeagues();
+        List<List<String>> messages = new ArrayList<>(nLeagues);
+        for (int l = 0; l < nLeagues; l++)
+            messages.add(output != null ? new ArrayList<>() : null);
+
+        int costs[] = new int[nLeagues];
+        AtomicBoolean stop = new AtomicBoolean();
+        if (nLeagues >= PARALLEL_THRESHOLD && pool.getParallelism() > 1)
+            pool.invoke(new LeagueTask(solution, 0, nLeagues, costs, messages, stopAtFirst, stop));
+        else
+            new LeagueTask(solution, 0, nLeagues, costs, messages, stopAtFirst, stop).compute();
+
+        for (List<String> leagueMessages : messages)
+            print(output, leagueMessages);
+        if (stop.get())
+            return false;
+
+        // checking total objective
+        int calcObj = 0;
+        for (int l = 0; l < nLeagues; l++) {
+            if (costs[l] < 0) {
+                valid = false;
+                continue;
+            }
+            if (costs[l] != solution.getLeague(l).getObjective()) {
+                valid = false;
+                Util.safePrintf(output, "League %d objective value mismatch: %d vs %d\n", l, costs[l], solution.getLeague(l).getObjective());
+                if (stopAtFirst) return false;
+            }
+            calcObj += costs[l];
+        }
+        if (solution.getObjective() != calcObj && valid) {
+            valid = false;
+            Util.safePrintf(output, "Objective value mismatch: %d vs %d\n", calcObj, solution.getObjective());
+        }
+
+        return valid;
+    }
+
+    private void print(PrintStream output, List<String> messages) {
+        if (messages != null)
+            for (String message : messages)
+                Util.safePrintf(output, "%s", message);
+    }
+
+    /**
+     * Validates the constraints of a league.
+     *
+     * @return the cost of the league (recomputed) if it is valid and -1
+     * otherwise
+     */
+    private int validateLeague(League league, List<String> messages, boolean stopAtFirst, AtomicBoolean stop) {
+        boolean valid = true;
+
+        if (league.size() < problem.minLeagueSize) {
+            valid = false;
+            report(messages, "League has less teams than the minimum required.\n");
+        }
+        if (league.size() > problem.maxLeagueSize) {
+            valid = false;
+            report(messages, "League has more teams than the maximum allowed.\n");
+        }
+        if (!valid && stopAtFirst) {
+            stop.set(true);
+            return -1;
+        }
+
+        int cost = 0;
+        Team teams[] = league.toArray();
+        for (int i = 0; i < teams.length; i++) {
+            Team teamI = teams[i];
+            for (int j = i + 1; j < teams.length; j++) {
+                Team teamJ = teams[j];
+                cost += problem.pairCost(teamI.id, teamJ.id) * 2;
+                if (problem.isCompatible(teamI.id, teamJ.id)) continue;
+
+                valid = false;
+                if (stopAtFirst) {
+                    stop.set(true);
+                    return -1;
+                }
+
+                // maximum distance
+                if (problem.pairDist(teamI.id, teamJ.id) > problem.maxTravelDist)
+                    report(messages, "Maximum distance constraint not respected among teams %d and %d.\n", teamI.cod, teamJ.cod);
+
+                // maximum travel time
+                if (problem.pairTime(teamI.id, teamJ.id) > problem.maxTravelTime)
+                    report(messages, "Maximum travel time constraint not respected among teams %d and %d.\n", teamI.cod, teamJ.cod);
+
+                // maximum level difference
+                if (Math.abs(teamI.level - teamJ.level) > problem.maxLevelDiff)
+                    report(messages, "Teams %d and %d are from different category but are allocated in the same league.\n", teamI.cod, teamJ.cod);
+            }
+        }
+
+        // maximum number of teams from the same club (counters are reset
+        // before returning, so that the array can be reused)
+        int counters[] = clubCounters.get();
+        for (Team team : teams) {
+            if (++counters[team.club.id] == problem.maxTeamSameClub + 1) {
+                valid = false;
+                report(messages, "Too many teams from club %d in the same league..\n", team.club.cod);
+                if (stopAtFirst) break;
+            }
+        }
+        for (Team team : teams)
+            counters[team.club.id] = 0;
+
+        if (!valid && stopAtFirst)
+            stop.set(true);
+        return valid ? cost : -1;
+    }
+
+    private void report(List<String> messages, String format, Object... args) {
+        if (messages != null)
+            messages.add(String.format(format, args));
+    }
+
+    /**
+     * Task that validates a range of leagues, splitting it in halves while it
+     * is large enough.
+     */
+    private class LeagueTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Solution solution;
+        private final int from, to;
+        private final int costs[];
+        private final List<List<String>> messages;
+        private final boolean stopAtFirst;
+        private final AtomicBoolean stop;
+
+        LeagueTask(Solution solution, int from, int to, int costs[], List<List<String>> messages, boolean stopAtFirst, AtomicBoolean stop) {
+            this.solution = solution;
+            this.from = from;
+            this.to = to;
+            this.costs = costs;
+            this.messages = messages;
+            this.stopAtFirst = stopAtFirst;
+            this.stop = stop;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > PARALLEL_THRESHOLD / 4 && ForkJoinTask.inForkJoinPool()) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new LeagueTask(solution, from, mid, costs, messages, stopAtFirst, stop),
+                  new LeagueTask(solution, mid, to, costs, messages, stopAtFirst, stop));
+                return;
+            }
+
+            for (int l = from; l < to && !stop.get(); l++)
+                costs[l] = validateLeague(solution.getLeague(l), messages.get(l), stopAtFirst, stop);
+        }
+    }
+}
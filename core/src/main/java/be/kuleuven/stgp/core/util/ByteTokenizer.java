@@ -0,0 +1,290 @@
+package be.kuleuven.stgp.core.util;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Line-oriented tokenizer that parses numbers directly from the bytes of a
+ * memory-mapped file. Contrarily to SimpleTokenizer, no String is created per
+ * line or per numeric token; only nextToken() allocates.
+ *
+ * @author Tulio Toffolo
+ */
+public class ByteTokenizer implements Closeable {
+
+    private static final double POWERS_OF_TEN[] = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+      1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final int limit;
+
+    private final boolean separators[] = new boolean[128];
+    private int position = 0;
+
+    /**
+     * Instantiates a new ByteTokenizer over a file, using ' ' and '\t' as
+     * separators.
+     *
+     * @param inPath the input file path
+     * @throws IOException if any error occurs while mapping the file
+     */
+    public ByteTokenizer(String inPath) throws IOException {
+        this.channel = FileChannel.open(Paths.get(inPath), StandardOpenOption.READ);
+        if (channel.size() > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IOException("file is too large to be mapped: " + inPath);
+        }
+        this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        this.limit = buffer.limit();
+        setSeparators(" \t");
+    }
+
+    /**
+     * Instantiates a new ByteTokenizer over a file.
+     *
+     * @param inPath     the input file path
+     * @param separators the characters that separate tokens within a line
+     * @throws IOException if any error occurs while mapping the file
+     */
+    public ByteTokenizer(String inPath, String separators) throws IOException {
+        this(inPath);
+        setSeparators(separators);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Checks whether there is any byte left to read.
+     *
+     * @return true if the end of the file was not reached and false otherwise
+     */
+    public boolean hasLine() {
+        return position < limit;
+    }
+
+    /**
+     * Checks whether the current line has any token left.
+     *
+     * @return true if there is a token before the end of the line and false
+     * otherwise
+     */
+    public boolean hasToken() {
+        skipSeparators();
+        return position < limit && !isEndOfLine(buffer.get(position));
+    }
+
+    /**
+     * Checks whether the current line is empty (or contains only separators).
+     *
+     * @return true if the line is empty and false otherwise
+     */
+    public boolean isEmptyLine() {
+        return !hasToken();
+    }
+
+    /**
+     * Moves to the beginning of the next line.
+     */
+    public void nextLine() {
+        while (position < limit && buffer.get(position) != '\n')
+            position++;
+        if (position < limit)
+            position++;
+    }
+
+    /**
+     * Skips empty lines, stopping at the beginning of the next non-empty one.
+     */
+    public void skipEmptyLines() {
+        int start = position;
+        while (position < limit && isEmptyLine()) {
+            nextLine();
+            start = position;
+        }
+        position = start;
+    }
+
+    /**
+     * Parses the next token of the current line as a double. Spaces and tabs
+     * around the number are ignored.
+     *
+     * @return the double value
+     * @throws NumberFormatException if the token is not a valid double
+     */
+    public double nextDouble() {
+        int start = startToken(), end = tokenEnd(start);
+        int first = skipBlanks(start, end), last = trimBlanks(first, end);
+
+        // fast path: at most 15 significant digits and no exponent, in which
+        // case the division below is exact (and matches Double.parseDouble)
+        boolean negative = false;
+        long mantissa = 0;
+        int nDigits = 0, nDecimals = 0;
+        boolean digit = false, dot = false, fast = true;
+
+        int i = first;
+        if (i < last && (buffer.get(i) == '-' || buffer.get(i) == '+'))
+            negative = buffer.get(i++) == '-';
+        for (; i < last; i++) {
+            byte c = buffer.get(i);
+            if (c >= '0' && c <= '9') {
+                digit = true;
+                if (mantissa == 0 && c == '0' && !dot) continue;
+                if (++nDigits > 15) fast = false;
+                mantissa = mantissa * 10 + (c - '0');
+                if (dot) nDecimals++;
+            }
+            else if (c == '.' && !dot) {
+                dot = true;
+            }
+            else {
+                fast = false;
+                break;
+            }
+        }
+
+        // tokens without digits (such as "-" or ".") are left to
+        // Double.parseDouble, which rejects them
+        if (fast && digit && nDecimals < POWERS_OF_TEN.length) {
+            position = end;
+            double value = mantissa / POWERS_OF_TEN[nDecimals];
+            return negative ? -value : value;
+        }
+
+        position = start;
+        return Double.parseDouble(nextToken().trim());
+    }
+
+    /**
+     * Parses the next token of the current line as an integer. Spaces and tabs
+     * around the number are ignored.
+     *
+     * @return the integer value
+     * @throws NumberFormatException if the token is not a valid integer
+     */
+    public int nextInt() {
+        int start = startToken(), end = tokenEnd(start);
+        int first = skipBlanks(start, end), last = trimBlanks(first, end);
+
+        boolean negative = false;
+        int i = first;
+        if (i < last && (buffer.get(i) == '-' || buffer.get(i) == '+'))
+            negative = buffer.get(i++) == '-';
+
+        long value = 0;
+        int nDigits = 0;
+        for (; i < last; i++, nDigits++) {
+            byte c = buffer.get(i);
+            if (c < '0' || c > '9' || nDigits > 10) {
+                position = start;
+                throw new NumberFormatException("invalid integer: " + nextToken());
+            }
+            value = value * 10 + (c - '0');
+        }
+        if (nDigits == 0 || (negative ? -value : value) != ( int ) (negative ? -value : value)) {
+            position = start;
+            throw new NumberFormatException("invalid integer: " + nextToken());
+        }
+
+        position = end;
+        return ( int ) (negative ? -value : value);
+    }
+
+    /**
+     * Gets the next token of the current line as a String. Trailing carriage
+     * returns are not included.
+     *
+     * @return the token
+     */
+    public String nextToken() {
+        int start = startToken();
+        int end = tokenEnd(start);
+        position = end;
+
+        byte bytes[] = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = buffer.get(start + i);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Sets the characters that separate tokens within a line. Line breaks
+     * always end a token.
+     *
+     * @param separators the separators (ASCII characters only)
+     * @throws IllegalArgumentException if a separator is not an ASCII character
+     */
+    public void setSeparators(String separators) {
+        for (char c : separators.toCharArray())
+            if (c >= this.separators.length)
+                throw new IllegalArgumentException("separator is not an ASCII character: " + c);
+
+        Arrays.fill(this.separators, false);
+        for (char c : separators.toCharArray())
+            this.separators[c] = true;
+        this.separators['\n'] = true;
+        this.separators['\r'] = true;
+    }
+
+    /**
+     * Skips the next token of the current line.
+     */
+    public void skipToken() {
+        position = tokenEnd(startToken());
+    }
+
+    private boolean isBlank(byte c) {
+        return c == ' ' || c == '\t';
+    }
+
+    private boolean isEndOfLine(byte c) {
+        return c == '\n' || c == '\r';
+    }
+
+    private boolean isSeparator(byte c) {
+        return c >= 0 && separators[c];
+    }
+
+    private void skipSeparators() {
+        while (position < limit) {
+            byte c = buffer.get(position);
+            if (!isSeparator(c) || isEndOfLine(c)) break;
+            position++;
+        }
+    }
+
+    private int skipBlanks(int start, int end) {
+        while (start < end && isBlank(buffer.get(start)))
+            start++;
+        return start;
+    }
+
+    private int trimBlanks(int start, int end) {
+        while (end > start && isBlank(buffer.get(end - 1)))
+            end--;
+        return end;
+    }
+
+    private int tokenEnd(int start) {
+        int end = start;
+        while (end < limit && !isSeparator(buffer.get(end)))
+            end++;
+        return end;
+    }
+
+    private int startToken() {
+        if (!hasToken())
+            throw new NoSuchElementException();
+        return position;
+    }
+}
@@ -0,0 +1,195 @@
+package be.kuleuven.stgp.core.util;
+
+import java.util.*;
+
+/**
+ * Static two-dimensional k-d tree over a set of points identified by their
+ * index. The tree is stored implicitly in arrays (median of each range at
+ * its middle position), so no node object is created.
+ *
+ * @author Tulio Toffolo
+ */
+public class KdTree {
+
+    private final double xs[], ys[];
+    private final int points[];
+
+    /**
+     * Instantiates a new KdTree. Point i has coordinates (xs[i], ys[i]).
+     *
+     * @param xs the x coordinates
+     * @param ys the y coordinates
+     */
+    public KdTree(double xs[], double ys[]) {
+        assert xs.length == ys.length : "coordinate arrays with different sizes";
+        this.xs = xs.clone();
+        this.ys = ys.clone();
+        this.points = new int[xs.length];
+        for (int i = 0; i < points.length; i++)
+            points[i] = i;
+        build(0, points.length, 0);
+    }
+
+    /**
+     * Gets the (up to) k points nearest to a location, sorted by increasing
+     * distance.
+     *
+     * @param x the x coordinate of the location
+     * @param y the y coordinate of the location
+     * @param k the number of points to return
+     * @return the indexes of the k nearest points
+     */
+    public int[] nearest(double x, double y, int k) {
+        k = Math.min(k, points.length);
+        if (k <= 0) return new int[0];
+
+        // max-heap (by distance) with the best k points found so far
+        int heap[] = new int[k];
+        double heapDists[] = new double[k];
+        int size = nearest(x, y, 0, points.length, 0, heap, heapDists, 0);
+
+        // sorting heap contents by increasing distance
+        int result[] = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            result[i] = heap[0];
+            heap[0] = heap[i];
+            heapDists[0] = heapDists[i];
+            siftDown(heap, heapDists, 0, i);
+        }
+        return result;
+    }
+
+    /**
+     * Gets all points within a given (Euclidean) distance of a location.
+     *
+     * @param x      the x coordinate of the location
+     * @param y      the y coordinate of the location
+     * @param radius the maximum distance
+     * @return the indexes of the points within the radius (in no particular
+     * order)
+     */
+    public int[] withinRadius(double x, double y, double radius) {
+        int buffer[][] = new int[][]{ new int[Math.max(1, Math.min(points.length, 16))] };
+        int size = withinRadius(x, y, radius * radius, 0, points.length, 0, buffer, 0);
+        return Arrays.copyOf(buffer[0], size);
+    }
+
+    /**
+     * Gets the number of points in the tree.
+     *
+     * @return the number of points
+     */
+    public int size() {
+        return points.length;
+    }
+
+    private void build(int from, int to, int depth) {
+        if (to - from <= 1) return;
+
+        int mid = (from + to) >>> 1;
+        select(from, to - 1, mid, depth % 2 == 0 ? xs : ys);
+        build(from, mid, depth + 1);
+        build(mid + 1, to, depth + 1);
+    }
+
+    private double dist2(int point, double x, double y) {
+        double dx = xs[point] - x, dy = ys[point] - y;
+        return dx * dx + dy * dy;
+    }
+
+    private int nearest(double x, double y, int from, int to, int depth, int heap[], double heapDists[], int size) {
+        if (from >= to) return size;
+
+        int mid = (from + to) >>> 1;
+        int point = points[mid];
+        double dist = dist2(point, x, y);
+
+        if (size < heap.length) {
+            heap[size] = point;
+            heapDists[size] = dist;
+            siftUp(heap, heapDists, size++);
+        }
+        else if (dist < heapDists[0]) {
+            heap[0] = point;
+            heapDists[0] = dist;
+            siftDown(heap, heapDists, 0, size);
+        }
+
+        double delta = depth % 2 == 0 ? x - xs[point] : y - ys[point];
+        if (delta < 0) {
+            size = nearest(x, y, from, mid, depth + 1, heap, heapDists, size);
+            if (size < heap.length || delta * delta < heapDists[0])
+                size = nearest(x, y, mid + 1, to, depth + 1, heap, heapDists, size);
+        }
+        else {
+            size = nearest(x, y, mid + 1, to, depth + 1, heap, heapDists, size);
+            if (size < heap.length || delta * delta < heapDists[0])
+                size = nearest(x, y, from, mid, depth + 1, heap, heapDists, size);
+        }
+        return size;
+    }
+
+    private void select(int left, int right, int k, double keys[]) {
+        while (right > left) {
+            double pivot = keys[points[(left + right) >>> 1]];
+            int i = left, j = right;
+            while (i <= j) {
+                while (keys[points[i]] < pivot) i++;
+                while (keys[points[j]] > pivot) j--;
+                if (i <= j) {
+                    int tmp = points[i];
+                    points[i++] = points[j];
+                    points[j--] = tmp;
+                }
+            }
+            if (k <= j) right = j;
+            else if (k >= i) left = i;
+            else return;
+        }
+    }
+
+    private static void siftDown(int heap[], double heapDists[], int i, int size) {
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heapDists[child + 1] > heapDists[child]) child++;
+            if (heapDists[i] >= heapDists[child]) return;
+            swap(heap, heapDists, i, child);
+            i = child;
+        }
+    }
+
+    private static void siftUp(int heap[], double heapDists[], int i) {
+        while (i > 0 && heapDists[(i - 1) / 2] < heapDists[i]) {
+            swap(heap, heapDists, i, (i - 1) / 2);
+            i = (i - 1) / 2;
+        }
+    }
+
+    private static void swap(int heap[], double heapDists[], int i, int j) {
+        int tmp = heap[i];
+        heap[i] = heap[j];
+        heap[j] = tmp;
+        double tmpDist = heapDists[i];
+        heapDists[i] = heapDists[j];
+        heapDists[j] = tmpDist;
+    }
+
+    private int withinRadius(double x, double y, double radius2, int from, int to, int depth, int buffer[][], int size) {
+        if (from >= to) return size;
+
+        int mid = (from + to) >>> 1;
+        int point = points[mid];
+        if (dist2(point, x, y) <= radius2) {
+            if (size == buffer[0].length)
+                buffer[0] = Arrays.copyOf(buffer[0], size * 2);
+            buffer[0][size++] = point;
+        }
+
+        double delta = depth % 2 == 0 ? x - xs[point] : y - ys[point];
+        if (delta <= 0 || delta * delta <= radius2)
+            size = withinRadius(x, y, radius2, from, mid, depth + 1, buffer, size);
+        if (delta >= 0 || delta * delta <= radius2)
+            size = withinRadius(x, y, radius2, mid + 1, to, depth + 1, buffer, size);
+        return size;
+    }
+}
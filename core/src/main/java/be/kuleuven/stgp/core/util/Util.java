@@ -1,9 +1,28 @@
 package be.kuleuven.stgp.core.util;
 
 import java.io.*;
+import java.nio.file.*;
 
 public class Util {
 
+    /**
+     * Checks whether a file contains a json object by peeking at its first
+     * non-whitespace byte, without parsing it.
+     *
+     * @param inPath the input file path
+     * @return true if the first non-whitespace byte of the file is '{' and
+     * false otherwise
+     * @throws IOException if any error occurs while reading the file
+     */
+    public static boolean isJsonFile(String inPath) throws IOException {
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(Paths.get(inPath)), 256)) {
+            int c = input.read();
+            while (c == ' ' || c == '\t' || c == '\n' || c == '\r')
+                c = input.read();
+            return c == '{';
+        }
+    }
+
     public static void safePrintf(PrintStream output, String format, Object... args) {
         if (output != null) {
             output.printf(format, args);
@@ -0,0 +1,42 @@
+package be.kuleuven.stgp.heuristic;
+
+import be.kuleuven.stgp.heuristic.model.MtSolution;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free holder of the best solution found by a group of solvers. The
+ * solutions offered must not be modified afterwards (solvers offer their own
+ * copy of the best solution).
+ */
+public class Incumbent {
+
+	private final AtomicReference<MtSolution> best = new AtomicReference<>();
+
+	public MtSolution get() {
+		return best.get();
+	}
+
+	public double objective() {
+		MtSolution solution = best.get();
+		return solution == null ? Double.MAX_VALUE : solution.objective();
+	}
+
+	/**
+	 * Replaces the incumbent by the given solution if it is better.
+	 *
+	 * @param solution the candidate solution
+	 * @return true if the solution became the incumbent and false otherwise
+	 */
+	public boolean offer(MtSolution solution) {
+		while (true) {
+			MtSolution current = best.get();
+			if (current != null && current.objective() <= solution.objective()) {
+				return false;
+			}
+			if (best.compareAndSet(current, solution)) {
+				return true;
+			}
+		}
+	}
+}
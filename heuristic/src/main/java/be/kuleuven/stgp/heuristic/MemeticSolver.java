@@ -0,0 +1,234 @@
+package be.kuleuven.stgp.heuristic;
+
+import be.kuleuven.stgp.core.model.Problem;
+import be.kuleuven.stgp.core.model.solution.Solution;
+import be.kuleuven.stgp.heuristic.cooling.TimedQuenching;
+import be.kuleuven.stgp.heuristic.model.Constructive;
+import be.kuleuven.stgp.heuristic.model.Crossover;
+import be.kuleuven.stgp.heuristic.model.MtSolution;
+import be.kuleuven.stgp.heuristic.move.Move;
+import be.kuleuven.stgp.heuristic.move.RuinAndRecreateMove;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Island-model memetic algorithm. Each island (one thread) evolves a small
+ * population of MtSolutions: at each generation, two parents are chosen by
+ * binary tournament, combined with the league-preserving Crossover and the
+ * child is improved by a short simulated annealing run with
+ * RuinAndRecreateMove (LOCAL_SEARCH_ITERATIONS iterations, cooling from
+ * LOCAL_SEARCH_TEMP to the final temperature of Solver). The initial
+ * solutions are annealed from the initial temperature of Solver, sharing
+ * INITIAL_TIME_SHARE of the time budget (or for INITIAL_ITERATIONS iterations
+ * each, without time limit), so that most of the budget is left for the
+ * generations even on large instances. The child replaces the
+ * worst solution of the population if it is better and its objective is not
+ * already in the population. Every MIGRATION_INTERVAL generations, each
+ * island sends a copy of its best solution to the next island (ring).
+ */
+public class MemeticSolver {
+
+	public static final int POPULATION_SIZE = 8;
+	public static final int MIGRATION_INTERVAL = 10;
+
+	/* the initial solutions and the children are improved by short annealing runs */
+	public static final int INITIAL_ITERATIONS = 20000;		// without time limit
+	public static final double INITIAL_TIME_SHARE = 0.2;	// with time limit, split over the initial solutions
+	public static final int LOCAL_SEARCH_ITERATIONS = 5000;
+	public static final double LOCAL_SEARCH_TEMP = 10;
+
+	private final SolverListener listener;
+	private final int nIslands;
+	private final long seed;
+
+	private volatile boolean stopped;
+	private long deadline;
+	private long initialMillis;		// time budget to anneal each initial solution (0 without time limit)
+	private Island islands[];
+	private Incumbent incumbent;
+	private double lastReported;
+
+	public MemeticSolver(SolverListener listener, int nIslands) {
+		this(listener, nIslands, 1);
+	}
+
+	public MemeticSolver(SolverListener listener, int nIslands, long seed) {
+		this.listener = listener;
+		this.nIslands = Math.max(1, nIslands);
+		this.seed = seed;
+	}
+
+	/**
+	 * Solves the problem. If seconds is positive, the best solution is
+	 * returned when the time is up; otherwise, each island runs
+	 * Solver.ITERATIONS local search iterations.
+	 *
+	 * @param problem the problem
+	 * @param seconds the time budget, in seconds (0 for no time limit)
+	 * @return the best solution found
+	 */
+	public Solution solve(Problem problem, int seconds) {
+		stopped = false;
+		long startTime = System.currentTimeMillis();
+		deadline = seconds > 0 ? startTime + seconds * 1000L : Long.MAX_VALUE;
+		initialMillis = seconds > 0 ? Math.max(1, (long) (seconds * 1000L * INITIAL_TIME_SHARE / POPULATION_SIZE)) : 0;
+		long maxGenerations = seconds > 0 ? Long.MAX_VALUE : Solver.ITERATIONS / LOCAL_SEARCH_ITERATIONS;
+
+		incumbent = new Incumbent();
+		lastReported = Double.MAX_VALUE;
+		islands = new Island[nIslands];
+		for (int i = 0; i < nIslands; i++) {
+			islands[i] = new Island(i, problem, seed + i * 0x9E3779B97F4A7C15L, maxGenerations);
+		}
+		listener.println("Memetic algorithm with " + nIslands + " islands of " + POPULATION_SIZE + " solutions");
+
+		ExecutorService executor = Executors.newFixedThreadPool(nIslands);
+		try {
+			ArrayList<Future<Void>> futures = new ArrayList<>();
+			for (Island island : islands) {
+				futures.add(executor.submit(island));
+			}
+			long generations = 0;
+			for (int i = 0; i < nIslands; i++) {
+				futures.get(i).get();
+				generations += islands[i].generation;
+			}
+
+			listener.println("Finished in " + (System.currentTimeMillis() - startTime) / 1000 + " sec (" + generations + " generations)");
+
+			// without any feasible solution, the best solution of the first island is returned
+			return incumbent.get() != null ? incumbent.get().convert() : islands[0].population.get(islands[0].best()).convert();
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			stop();
+			throw new IllegalStateException(e);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Stops the islands (from any thread); the best solution found so far is
+	 * returned by solve().
+	 */
+	public void stop() {
+		stopped = true;
+	}
+
+	private boolean isOver() {
+		return stopped || System.currentTimeMillis() >= deadline;
+	}
+
+	private synchronized void report(MtSolution solution) {
+		if (solution.objective() < lastReported) {
+			lastReported = solution.objective();
+			listener.improved(solution.convert());
+		}
+	}
+
+	private class Island implements Callable<Void> {
+
+		final int index;
+		final Problem problem;
+		final Random random;
+		final Move move;
+		final long maxGenerations;
+		final ArrayList<MtSolution> population = new ArrayList<>();
+		final ConcurrentLinkedQueue<MtSolution> migrants = new ConcurrentLinkedQueue<>();
+		long generation = 0;
+
+		Island(int index, Problem problem, long seed, long maxGenerations) {
+			this.index = index;
+			this.problem = problem;
+			this.random = new Random(seed);
+			this.move = new RuinAndRecreateMove(problem, random);
+			this.maxGenerations = maxGenerations;
+		}
+
+		@Override
+		public Void call() {
+			// the population has at least one solution, even if the time is up
+			while (population.size() < POPULATION_SIZE && (population.isEmpty() || !isOver())) {
+				MtSolution solution = Constructive.create(problem, random);
+				if (initialMillis > 0) {
+					Solver.anneal(random, move, solution, new TimedQuenching(initialMillis, Solver.INITIAL_TEMP, Solver.FINAL_TEMP), () -> isOver());
+				}
+				else {
+					Solver.anneal(random, move, solution, INITIAL_ITERATIONS, Solver.INITIAL_TEMP, () -> isOver());
+				}
+				population.add(solution);
+				offer(solution);
+			}
+
+			while (generation < maxGenerations && !isOver()) {
+				generation++;
+
+				MtSolution first = population.get(tournament());
+				MtSolution second = population.get(tournament());
+				MtSolution child = Crossover.create(first, second, random);
+				Solver.anneal(random, move, child, LOCAL_SEARCH_ITERATIONS, LOCAL_SEARCH_TEMP, () -> isOver());
+				insert(child);
+
+				if (generation % MIGRATION_INTERVAL == 0 && nIslands > 1) {
+					islands[(index + 1) % nIslands].migrants.add(new MtSolution(population.get(best())));
+				}
+				for (MtSolution migrant = migrants.poll(); migrant != null; migrant = migrants.poll()) {
+					insert(migrant);
+				}
+			}
+			return null;
+		}
+
+		private void insert(MtSolution solution) {
+			offer(solution);
+
+			int worst = 0;
+			for (int i = 0; i < population.size(); i++) {
+				MtSolution other = population.get(i);
+				if (other.objective() == solution.objective() && other.nInfeasible() == solution.nInfeasible()) return;
+				if (Solver.isBetter(population.get(worst), other)) worst = i;
+			}
+			if (Solver.isBetter(solution, population.get(worst))) {
+				population.set(worst, solution);
+			}
+		}
+
+		private int tournament() {
+			int a = random.nextInt(population.size());
+			int b = random.nextInt(population.size());
+			return Solver.isBetter(population.get(a), population.get(b)) ? a : b;
+		}
+
+		private int best() {
+			int best = 0;
+			for (int i = 1; i < population.size(); i++) {
+				if (Solver.isBetter(population.get(i), population.get(best))) best = i;
+			}
+			return best;
+		}
+
+		private void offer(MtSolution solution) {
+			if (solution.isFeasible() && solution.objective() < incumbent.objective()) {
+				MtSolution copy = new MtSolution(solution);
+				if (incumbent.offer(copy)) {
+					report(copy);
+				}
+			}
+		}
+	}
+}
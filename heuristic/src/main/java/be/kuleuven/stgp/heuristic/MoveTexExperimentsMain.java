@@ -2,6 +2,7 @@ package be.kuleuven.stgp.heuristic;
 
 import be.kuleuven.stgp.core.model.*;
 import be.kuleuven.stgp.core.model.solution.*;
+import be.kuleuven.stgp.heuristic.cooling.*;
 
 import java.io.*;
 
@@ -15,10 +16,32 @@ public class MoveTexExperimentsMain {
         String inputPath = args[0];
         String outputPath = args[1];
         int seconds = new Integer(args[2]);
+        int nThreads = args.length > 3 ? new Integer(args[3]) : 1;
+        String cooling = args.length > 4 && !args[4].equals("-") ? args[4] : null;
+        String mode = args.length > 5 ? args[5].toLowerCase() : "";
 
         Problem problem = MovetexMain.readProblem(inputPath);
-        Solver solver = new Solver(SolverListener.PRINT_LISTENER);
-        Solution solution = solver.solve(problem, seconds);
+        Solution solution;
+        if (mode.contains("decomp")) {
+            // the components are solved in parallel (each one with a single
+            // thread, unless there is only one) with a share of the time
+            // budget proportional to their number of teams
+            Decomposition decomposition = new Decomposition(problem);
+            int nComponents = decomposition.getNComponents();
+            int componentThreads = nComponents == 1 ? nThreads : 1;
+            int parallelism = Math.min(nThreads, nComponents);
+            System.out.printf("Decomposition: %d components\n", nComponents);
+
+            solution = decomposition.solve(subProblem -> {
+                int componentSeconds = seconds;
+                if (seconds > 0 && nComponents > 1)
+                    componentSeconds = ( int ) Math.max(1, Math.min(seconds, Math.round(( double ) seconds * parallelism * subProblem.teams.length / problem.teams.length)));
+                return solve(subProblem, componentSeconds, componentThreads, cooling, mode);
+            }, nThreads);
+        }
+        else {
+            solution = solve(problem, seconds, nThreads, cooling, mode);
+        }
 
         if (solution.validate(System.err)) {
             System.out.printf("Solution cost: %d\n", solution.getObjective());
@@ -26,4 +49,47 @@ public class MoveTexExperimentsMain {
             solution.write(outputPath);
         }
     }
+
+    private static Solution solve(Problem problem, int seconds, int nThreads, String cooling, String mode) {
+        boolean alns = mode.contains("alns");
+        boolean tempering = mode.contains("pt");
+        boolean memetic = mode.contains("memetic");
+        boolean pathRelinking = mode.contains("pr");
+        boolean repartitioning = mode.contains("exact");
+        boolean tabu = mode.contains("tabu");
+
+        if (memetic) {
+            return new MemeticSolver(SolverListener.PRINT_LISTENER, nThreads).solve(problem, seconds);
+        }
+        else if (tabu) {
+            return new TabuSearch(SolverListener.PRINT_LISTENER).solve(problem, seconds);
+        }
+        else if (tempering) {
+            ParallelTempering solver = new ParallelTempering(SolverListener.PRINT_LISTENER, nThreads);
+            solver.setAlns(alns);
+            return solver.solve(problem, seconds);
+        }
+        else if (nThreads > 1) {
+            ParallelSolver solver = new ParallelSolver(SolverListener.PRINT_LISTENER, nThreads);
+            if (cooling != null)
+                solver.setCoolingSchedules(() -> createCoolingSchedule(cooling, seconds));
+            solver.setAlns(alns);
+            solver.setPathRelinking(pathRelinking);
+            solver.setRepartitioning(repartitioning);
+            return solver.solve(problem, seconds);
+        }
+        else {
+            Solver solver = new Solver(SolverListener.PRINT_LISTENER);
+            if (cooling != null)
+                solver.setCoolingSchedule(createCoolingSchedule(cooling, seconds));
+            solver.setAlns(alns);
+            solver.setPathRelinking(pathRelinking);
+            solver.setRepartitioning(repartitioning);
+            return solver.solve(problem, seconds);
+        }
+    }
+
+    private static SaCoolingSchedule createCoolingSchedule(String name, int seconds) {
+        return SaCoolingSchedule.create(name, Solver.ITERATIONS, seconds * 1000L, Solver.INITIAL_TEMP, Solver.FINAL_TEMP);
+    }
 }
@@ -0,0 +1,171 @@
+package be.kuleuven.stgp.heuristic;
+
+import be.kuleuven.stgp.core.model.Problem;
+import be.kuleuven.stgp.core.model.solution.Solution;
+import be.kuleuven.stgp.heuristic.cooling.SaCoolingSchedule;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Multi-start simulated annealing: runs independent Solver chains (each one
+ * with its own Random and moves) on a thread pool. The chains share their
+ * best solutions through an Incumbent, and improvements of the shared
+ * incumbent are reported to the listener.
+ */
+public class ParallelSolver {
+
+	private final SolverListener listener;
+	private final int nThreads;
+	private final long seed;
+
+	private final ArrayList<Solver> solvers = new ArrayList<>();
+	private Supplier<SaCoolingSchedule> coolingSchedules = null;
+	private boolean alns = false;
+	private Solution initialSolution = null;
+	private boolean pathRelinking = false;
+	private boolean repartitioning = false;
+	private double initialTemp;
+	private double lastReported = Double.MAX_VALUE;
+
+	public ParallelSolver(SolverListener listener, int nThreads) {
+		this(listener, nThreads, 1);
+	}
+
+	public ParallelSolver(SolverListener listener, int nThreads, long seed) {
+		this.listener = listener;
+		this.nThreads = nThreads;
+		this.seed = seed;
+	}
+
+	/**
+	 * Sets the factory of cooling schedules (each chain needs its own
+	 * instance); if not set, chains use the default schedule of Solver.
+	 *
+	 * @param coolingSchedules the cooling schedule factory
+	 */
+	public void setCoolingSchedules(Supplier<SaCoolingSchedule> coolingSchedules) {
+		this.coolingSchedules = coolingSchedules;
+	}
+
+	/**
+	 * Sets whether the chains use the adaptive large neighbourhood search move
+	 * (see Solver.setAlns()).
+	 *
+	 * @param alns true to use the ALNS move
+	 */
+	public void setAlns(boolean alns) {
+		this.alns = alns;
+	}
+
+	/**
+	 * Sets a solution for every chain to start from (see
+	 * Solver.setInitialSolution()).
+	 *
+	 * @param initialSolution the solution to start from (or null to build one)
+	 * @param initialTemp     the initial temperature of the default schedule
+	 */
+	public void setInitialSolution(Solution initialSolution, double initialTemp) {
+		this.initialSolution = initialSolution;
+		this.initialTemp = initialTemp;
+	}
+
+	/**
+	 * Sets whether each chain runs path relinking among its elite solutions
+	 * (see Solver.setPathRelinking()).
+	 *
+	 * @param pathRelinking true to run path relinking
+	 */
+	public void setPathRelinking(boolean pathRelinking) {
+		this.pathRelinking = pathRelinking;
+	}
+
+	/**
+	 * Sets whether the chains apply the exact repartitioning move (see
+	 * Solver.setRepartitioning()).
+	 *
+	 * @param repartitioning true to apply the repartitioning move
+	 */
+	public void setRepartitioning(boolean repartitioning) {
+		this.repartitioning = repartitioning;
+	}
+
+	public Solution solve(Problem problem, int seconds) {
+		long startTime = System.currentTimeMillis();
+		Incumbent incumbent = new Incumbent();
+
+		/* chain listener: only improvements of the incumbent are reported (in order) */
+		SolverListener chainListener = new SolverListener() {
+			@Override
+			public void improved(Solution solution) {
+				synchronized (ParallelSolver.this) {
+					if (solution.getObjective() < lastReported) {
+						lastReported = solution.getObjective();
+						listener.improved(solution);
+					}
+				}
+			}
+
+			@Override
+			public void println(String str) {}
+		};
+
+		synchronized (this) {
+			solvers.clear();
+			for (int i = 0; i < nThreads; i++) {
+				// chain 0 uses the same seed as the sequential solver
+				Solver solver = new Solver(chainListener, seed + i * 0x9E3779B97F4A7C15L);
+				solver.setIncumbent(incumbent);
+				solver.setAlns(alns);
+				solver.setInitialSolution(initialSolution, initialTemp);
+				solver.setPathRelinking(pathRelinking);
+				solver.setRepartitioning(repartitioning);
+				if (coolingSchedules != null) {
+					solver.setCoolingSchedule(coolingSchedules.get());
+				}
+				solvers.add(solver);
+			}
+		}
+		listener.println("Parallel SA with " + nThreads + " chains");
+
+		ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+		try {
+			ArrayList<Future<Solution>> futures = new ArrayList<>();
+			for (Solver solver : solvers) {
+				futures.add(executor.submit(() -> solver.solve(problem, seconds)));
+			}
+
+			for (Future<Solution> future : futures) {
+				future.get();
+			}
+
+			listener.println("Finished in " + (System.currentTimeMillis() - startTime) / 1000 + " sec");
+			// without any feasible solution, the result of the first chain is returned
+			return incumbent.get() != null ? incumbent.get().convert() : futures.get(0).get();
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			stop();
+			throw new IllegalStateException(e);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	public synchronized void stop() {
+		for (Solver solver : solvers) {
+			solver.stop();
+		}
+	}
+}
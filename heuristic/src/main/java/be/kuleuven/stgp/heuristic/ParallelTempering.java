@@ -0,0 +1,252 @@
+package be.kuleuven.stgp.heuristic;
+
+import be.kuleuven.stgp.core.model.Problem;
+import be.kuleuven.stgp.core.model.solution.Solution;
+import be.kuleuven.stgp.heuristic.alns.AlnsMove;
+import be.kuleuven.stgp.heuristic.model.Constructive;
+import be.kuleuven.stgp.heuristic.model.MtSolution;
+import be.kuleuven.stgp.heuristic.move.Move;
+import be.kuleuven.stgp.heuristic.move.RuinAndRecreateMove;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Parallel tempering (replica exchange): K replicas run simulated annealing
+ * at fixed temperatures of a geometric ladder (one thread each). Every
+ * swapInterval iterations, the replicas stop and adjacent temperatures try to
+ * exchange their solutions with the Metropolis criterion, i.e. with
+ * probability min(1, exp((E_cold - E_hot) * (1 / T_cold - 1 / T_hot))).
+ * Alternate rounds try the even and the odd pairs.
+ * <p>
+ * Since a replica never accepts a move that increases its number of
+ * infeasible leagues, solutions with different numbers of infeasible leagues
+ * are only exchanged if the one with fewer infeasible leagues goes to the
+ * colder temperature. The swap statistics are reported through
+ * SolverListener.exchanged().
+ */
+public class ParallelTempering {
+
+	/* default number of iterations between exchanges (ALNS iterations are much slower) */
+	public static final int SWAP_INTERVAL = 2000;
+	public static final int ALNS_SWAP_INTERVAL = 50;
+
+	private final SolverListener listener;
+	private final int nReplicas;
+	private final long seed;
+
+	private double minTemp = Solver.FINAL_TEMP, maxTemp = Solver.INITIAL_TEMP;
+	private int swapInterval = 0;
+	private boolean alns = false;
+	private volatile boolean stopped;
+	private long deadline;
+
+	private Replica replicas[];
+	private long attempts[], accepted[];
+	private double lastReported;
+
+	public ParallelTempering(SolverListener listener, int nReplicas) {
+		this(listener, nReplicas, 1);
+	}
+
+	public ParallelTempering(SolverListener listener, int nReplicas, long seed) {
+		this.listener = listener;
+		this.nReplicas = Math.max(2, nReplicas);
+		this.seed = seed;
+	}
+
+	/**
+	 * Sets the temperatures of the coldest and hottest replicas (the others
+	 * are geometrically spaced between them).
+	 */
+	public void setTemperatures(double minTemp, double maxTemp) {
+		this.minTemp = minTemp;
+		this.maxTemp = maxTemp;
+	}
+
+	/**
+	 * Sets the number of iterations between exchanges (0 for the default).
+	 */
+	public void setSwapInterval(int swapInterval) {
+		this.swapInterval = swapInterval;
+	}
+
+	public void setAlns(boolean alns) {
+		this.alns = alns;
+	}
+
+	/**
+	 * Solves the problem. If seconds is positive, the best solution is
+	 * returned when the time is up; otherwise, each replica runs
+	 * Solver.ITERATIONS iterations.
+	 *
+	 * @param problem the problem
+	 * @param seconds the time budget, in seconds (0 for no time limit)
+	 * @return the best solution found
+	 */
+	public Solution solve(Problem problem, int seconds) {
+		stopped = false;
+		long startTime = System.currentTimeMillis();
+		deadline = seconds > 0 ? startTime + seconds * 1000L : Long.MAX_VALUE;
+		int interval = swapInterval > 0 ? swapInterval : alns ? ALNS_SWAP_INTERVAL : SWAP_INTERVAL;
+		long maxRounds = seconds > 0 ? Long.MAX_VALUE : Solver.ITERATIONS / interval;
+
+		Incumbent incumbent = new Incumbent();
+		lastReported = Double.MAX_VALUE;
+		replicas = new Replica[nReplicas];
+		attempts = new long[nReplicas - 1];
+		accepted = new long[nReplicas - 1];
+		for (int i = 0; i < nReplicas; i++) {
+			double temp = minTemp * Math.pow(maxTemp / minTemp, (double) i / (nReplicas - 1));
+			replicas[i] = new Replica(problem, temp, interval, seed + i * 0x9E3779B97F4A7C15L, incumbent);
+		}
+		listener.println("Parallel tempering with " + nReplicas + " replicas (" + minTemp + "° to " + maxTemp + "°)");
+
+		ExecutorService executor = Executors.newFixedThreadPool(nReplicas);
+		try {
+			ArrayList<Callable<Void>> sweeps = new ArrayList<>();
+			for (Replica replica : replicas) {
+				sweeps.add(replica);
+			}
+
+			for (long round = 0; round < maxRounds && !stopped && System.currentTimeMillis() < deadline; round++) {
+				for (Future<Void> future : executor.invokeAll(sweeps)) {
+					future.get();
+				}
+				exchange((int) (round & 1));
+			}
+
+			listener.exchanged(getTemperatures(), attempts.clone(), accepted.clone());
+			listener.println("Finished in " + (System.currentTimeMillis() - startTime) / 1000 + " sec");
+
+			// without any feasible solution, the solution of the coldest replica is returned
+			return incumbent.get() != null ? incumbent.get().convert() : replicas[0].solution.convert();
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Stops the search (from any thread) after the current round; the best
+	 * solution found so far is returned by solve().
+	 */
+	public void stop() {
+		stopped = true;
+	}
+
+	private double[] getTemperatures() {
+		double temps[] = new double[nReplicas];
+		for (int i = 0; i < nReplicas; i++) {
+			temps[i] = replicas[i].temp;
+		}
+		return temps;
+	}
+
+	/**
+	 * Tries to exchange the solutions of the pairs (i, i + 1) with i = parity,
+	 * parity + 2, ... (replica i is the colder one).
+	 */
+	private void exchange(int parity) {
+		for (int i = parity; i + 1 < nReplicas; i += 2) {
+			Replica cold = replicas[i], hot = replicas[i + 1];
+			attempts[i]++;
+
+			boolean swap;
+			int infDelta = hot.solution.nInfeasible() - cold.solution.nInfeasible();
+			if (infDelta != 0) {
+				swap = infDelta < 0;
+			}
+			else {
+				double exponent = (hot.solution.objective() - cold.solution.objective()) * (1 / hot.temp - 1 / cold.temp);
+				swap = exponent >= 0 || cold.random.nextDouble() < Math.exp(exponent);
+			}
+
+			if (swap) {
+				MtSolution solution = cold.solution;
+				cold.solution = hot.solution;
+				hot.solution = solution;
+				accepted[i]++;
+			}
+		}
+	}
+
+	private synchronized void report(MtSolution solution) {
+		if (solution.objective() < lastReported) {
+			lastReported = solution.objective();
+			listener.improved(solution.convert());
+		}
+	}
+
+	/**
+	 * A replica: a solution evolving at a fixed temperature, with its own
+	 * Random and move. Each call runs the iterations of a round (or less, if
+	 * the time is up).
+	 */
+	private class Replica implements Callable<Void> {
+
+		final double temp;
+		final int iterations;
+		final Random random;
+		final Move move;
+		final Incumbent incumbent;
+		MtSolution solution;
+
+		Replica(Problem problem, double temp, int iterations, long seed, Incumbent incumbent) {
+			this.temp = temp;
+			this.iterations = iterations;
+			this.random = new Random(seed);
+			this.move = alns ? new AlnsMove(problem, random) : new RuinAndRecreateMove(problem, random);
+			this.incumbent = incumbent;
+			this.solution = Constructive.create(problem, random);
+			offer();
+		}
+
+		@Override
+		public Void call() {
+			for (int it = 0; it < iterations; it++) {
+				if (it % Solver.ALNS_CHECK_INTERVAL == 0 && (stopped || System.currentTimeMillis() >= deadline)) break;
+
+				double oldDist = solution.objective();
+				int oldInfeasible = solution.nInfeasible();
+
+				if (Solver.tryMove(random, move, solution, temp)) {
+					double newDist = solution.objective();
+					boolean newBest = solution.isFeasible() && newDist < incumbent.objective();
+					move.update(true, newDist < oldDist || solution.nInfeasible() < oldInfeasible, newBest);
+					if (newBest) {
+						offer();
+					}
+				}
+				else {
+					move.update(false, false, false);
+				}
+			}
+			return null;
+		}
+
+		private void offer() {
+			if (solution.isFeasible()) {
+				MtSolution copy = new MtSolution(solution);
+				if (incumbent.offer(copy)) {
+					report(copy);
+				}
+			}
+		}
+	}
+}
@@ -2,15 +2,21 @@ package be.kuleuven.stgp.heuristic;
 
 import be.kuleuven.stgp.core.model.Problem;
 import be.kuleuven.stgp.core.model.solution.Solution;
+import be.kuleuven.stgp.heuristic.alns.AlnsMove;
+import be.kuleuven.stgp.heuristic.cooling.Quenching;
+import be.kuleuven.stgp.heuristic.cooling.SaCoolingSchedule;
+import be.kuleuven.stgp.heuristic.cooling.TimedQuenching;
 import be.kuleuven.stgp.heuristic.model.Constructive;
+import be.kuleuven.stgp.heuristic.model.ElitePool;
 import be.kuleuven.stgp.heuristic.model.MtSolution;
+import be.kuleuven.stgp.heuristic.model.PathRelinking;
 import be.kuleuven.stgp.heuristic.move.Move;
+import be.kuleuven.stgp.heuristic.move.RepartitionMove;
 import be.kuleuven.stgp.heuristic.move.RuinAndRecreateMove;
 
 import java.util.ArrayList;
 import java.util.Random;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.function.BooleanSupplier;
 
 /**
  * Created by Jan on 23-10-2015.
@@ -20,97 +26,356 @@ public class Solver {
 	public static final int DELAY_MS = 100;
 	public static final int PROB_SIZE = 500;
 
-	private final Random random = new Random(1);
+	/* the clock (and the stop flag) are checked every CHECK_INTERVAL iterations */
+	public static final int CHECK_INTERVAL = 1024;
+	public static final int ALNS_CHECK_INTERVAL = 16;	// ALNS iterations are much slower
+
+	/* default schedule settings */
+	public static final double INITIAL_TEMP = 100;		// 10
+	public static final double FINAL_TEMP = 1;			// 0.5
+	public static final int ITERATIONS = 80_000_000;	// 80_000_000
+	public static final double WARM_START_TEMP = 10;
+
+	/* elite pool and path relinking (post-optimisation) settings */
+	public static final int ELITE_SIZE = 10;
+	public static final int ELITE_INTERVAL = 10_000;		// the current solution is offered to the pool every ELITE_INTERVAL iterations
+	public static final double RELINKING_SHARE = 0.1;	// share of the time budget reserved to path relinking
+	public static final int RELINKING_ITERATIONS = 5000;	// local search iterations applied to each relinked solution
+
+	public static final double REPARTITION_SHARE = 0.1;	// share of the running time used by the exact repartitioning move
+
+	/*
+	 * Acceptance thresholds: a worsening delta is accepted if delta < temp *
+	 * ACCEPT_TABLE[u], with u uniform in [0, ACCEPT_TABLE_SIZE), which is
+	 * equivalent (up to the table resolution) to random < exp(-delta / temp).
+	 */
+	private static final int ACCEPT_TABLE_SIZE = 1 << 16;
+	private static final double ACCEPT_TABLE[] = new double[ACCEPT_TABLE_SIZE];
+	private static final double ACCEPT_TABLE_MAX;
+
+	static {
+		for (int i = 0; i < ACCEPT_TABLE_SIZE; i++) {
+			ACCEPT_TABLE[i] = -Math.log((i + 0.5) / ACCEPT_TABLE_SIZE);
+		}
+		ACCEPT_TABLE_MAX = ACCEPT_TABLE[0];
+	}
+
+	private final Random random;
 	private final SolverListener listener;
 	private final ArrayList<Move> moves = new ArrayList<>();
 
-	private double maxIt;
-	private long startTime;
+	private Incumbent incumbent = null;
+	private SaCoolingSchedule coolingSchedule = null;
+	private boolean alns = false;
+	private Solution initialSolution = null;
+	private double initialTemp = INITIAL_TEMP;
+	private boolean pathRelinking = false;
+	private ElitePool elitePool;
+	private boolean repartitioning = false;
+	private RepartitionMove repartitionMove;
+	private long repartitionNanos;
+
+	private SaCoolingSchedule schedule;
+	private long startTime, deadline;
 	private int it;
 	private double temp;
+	private volatile boolean stopped;
 
 	private MtSolution bestSolution;
 	private MtSolution currentSolution;
 
 	public Solver(SolverListener listener) {
+		this(listener, 1);
+	}
+
+	public Solver(SolverListener listener, long seed) {
 		this.listener = listener;
+		this.random = new Random(seed);
 	}
 
-	public Solution solve(Problem problem, int seconds) {
+	/**
+	 * Sets the incumbent holder shared with other solvers; every improvement
+	 * of this solver is offered to it, and improvements of the shared
+	 * incumbent are reported through SolverListener.improved().
+	 *
+	 * @param incumbent the shared incumbent
+	 */
+	public void setIncumbent(Incumbent incumbent) {
+		this.incumbent = incumbent;
+	}
+
+	/**
+	 * Sets the cooling schedule. If no schedule is set, solve() uses timed
+	 * quenching when given a time budget and (iteration-based) quenching
+	 * otherwise.
+	 *
+	 * @param coolingSchedule the cooling schedule (or null for the default)
+	 */
+	public void setCoolingSchedule(SaCoolingSchedule coolingSchedule) {
+		this.coolingSchedule = coolingSchedule;
+	}
 
-		//Timer timer = new Timer();
-		//timer.schedule(new TimerTask() {
-		//	@Override
-		//	public void run() {
-		//		stop();
-		//	}
-		//}, seconds*1000);
+	/**
+	 * Sets whether the adaptive large neighbourhood search move (AlnsMove) is
+	 * used instead of RuinAndRecreateMove.
+	 *
+	 * @param alns true to use the ALNS move
+	 */
+	public void setAlns(boolean alns) {
+		this.alns = alns;
+	}
+
+	/**
+	 * Sets a solution to start from (warm start) instead of a constructive
+	 * one, e.g. a previous schedule of the same instance (see
+	 * Constructive.create(Solution, Random)). Since the search starts from a
+	 * good solution, the default cooling schedule starts at initialTemp.
+	 *
+	 * @param initialSolution the solution to start from (or null to build one)
+	 * @param initialTemp     the initial temperature of the default schedule
+	 */
+	public void setInitialSolution(Solution initialSolution, double initialTemp) {
+		this.initialSolution = initialSolution;
+		this.initialTemp = initialSolution != null ? initialTemp : INITIAL_TEMP;
+	}
+
+	/**
+	 * Sets whether path relinking is run among the solutions of the elite pool
+	 * after the annealing (with RELINKING_SHARE of the time budget).
+	 *
+	 * @param pathRelinking true to run path relinking
+	 */
+	public void setPathRelinking(boolean pathRelinking) {
+		this.pathRelinking = pathRelinking;
+	}
+
+	/**
+	 * Sets whether the exact repartitioning move (RepartitionMove) is applied
+	 * to the current solution, whenever the clock is checked and the move has
+	 * used less than REPARTITION_SHARE of the running time.
+	 *
+	 * @param repartitioning true to apply the repartitioning move
+	 */
+	public void setRepartitioning(boolean repartitioning) {
+		this.repartitioning = repartitioning;
+	}
+
+	/**
+	 * Gets the elite pool of the last call to solve(): the best distinct
+	 * feasible solutions among the improvements and the current solutions
+	 * sampled every ELITE_INTERVAL iterations. The pool is only kept when path
+	 * relinking is enabled (see setPathRelinking()); otherwise, null is
+	 * returned.
+	 */
+	public ElitePool getElitePool() {
+		return elitePool;
+	}
 
+	/**
+	 * Solves the problem. If seconds is positive, the best solution is
+	 * returned when the time is up (whatever the cooling schedule); by
+	 * default, the temperature is then driven by the elapsed time. Otherwise,
+	 * the search runs until the schedule is cooled down.
+	 *
+	 * @param problem the problem
+	 * @param seconds the time budget, in seconds (0 for no time limit)
+	 * @return the best solution found
+	 */
+	public Solution solve(Problem problem, int seconds) {
+		stopped = false;
 		startTime = System.currentTimeMillis();
+		deadline = seconds > 0 ? startTime + seconds * 1000L : Long.MAX_VALUE;
+		long annealingDeadline = seconds > 0 && pathRelinking ? startTime + (long) (seconds * 1000L * (1 - RELINKING_SHARE)) : deadline;
+		elitePool = pathRelinking ? new ElitePool(ELITE_SIZE, Math.max(1, problem.teams.length / 10)) : null;
 
 		/* create moves */
 		createMoves(problem);
 
 		/* meta settings ----------------------------------- */
 
-		final double INITIAL_TEMP = 100;			// 10
-		final double FINAL_TEMP = 1;			// 0.5
-		final double ITERATIONS = 80_000_000;	// 80_000_000
-		final double COOLING_RATE = getCooling(ITERATIONS, INITIAL_TEMP, FINAL_TEMP);
-		maxIt = ITERATIONS;
+		schedule = coolingSchedule;
+		if (schedule == null) {
+			double finalTemp = Math.min(FINAL_TEMP, initialTemp);
+			schedule = seconds > 0 ? new TimedQuenching(annealingDeadline - startTime, initialTemp, finalTemp) : new Quenching(ITERATIONS, initialTemp, finalTemp);
+		}
+		schedule.reset();
+		temp = schedule.getTemp();
 
-		listener.println("SA settings: " + INITIAL_TEMP + " " + FINAL_TEMP + " " + ITERATIONS);
+		listener.println("SA settings: " + schedule.getClass().getSimpleName() + " " + schedule.getTemp() + " " + (seconds > 0 ? seconds + " sec" : schedule.getMaxIterations()));
 
 		/* create initial solution ------------------------- */
-		currentSolution = Constructive.create(problem, random);
+		if (initialSolution != null) {
+			if (initialSolution.problem != problem) {
+				throw new IllegalArgumentException("The initial solution is not a solution of the problem.");
+			}
+			currentSolution = Constructive.create(initialSolution, random);
+		}
+		else {
+			currentSolution = Constructive.create(problem, random);
+		}
 		bestSolution = new MtSolution(currentSolution);
 		printImproved();
+		offerIncumbent();
+		offerElite(bestSolution);
 
 		currentSolution.convert().validate(System.err);
 
 		/* [meta] init ------------------------------------- */
-		temp = INITIAL_TEMP;
 		it = 0;
+		int checkInterval = alns ? ALNS_CHECK_INTERVAL : CHECK_INTERVAL;
+		long startNanos = System.nanoTime();
+		repartitionNanos = 0;
 
 		/* loop -------------------------------------------- */
-		while (temp > FINAL_TEMP) {
+		while (!schedule.isCooledDown()) {
+
+			// [meta] cheap checks: clock and stop flag
+			if (it % checkInterval == 0 && (stopped || System.currentTimeMillis() >= annealingDeadline)) break;
+			if (repartitionMove != null && it % checkInterval == 0 && repartitionNanos < REPARTITION_SHARE * (System.nanoTime() - startNanos)) {
+				repartition();
+			}
+			temp = schedule.getTemp();
 
 			double oldDist = currentSolution.objective();
-			// move
+			int oldInfeasible = currentSolution.nInfeasible();
+
+			// move (applied in place, undone if rejected) and [meta] accept?
 			Move move = moves.get(random.nextInt(moves.size()));
-			MtSolution neighbour = move.getNeighbour(currentSolution);
-			double newDist = neighbour.objective();
-
-			// [meta] accept?
-			boolean accept = accept(oldDist, newDist, temp);
-			int infDelta = neighbour.nInfeasible() - currentSolution.nInfeasible();
-			if (accept && infDelta <= 0) {
-				currentSolution = neighbour;
-				if (newDist < bestSolution.objective() && currentSolution.isFeasible()) {
+			if (tryMove(random, move, currentSolution, temp)) {
+				double newDist = currentSolution.objective();
+				boolean newBest = newDist < bestSolution.objective() && currentSolution.isFeasible();
+				move.update(true, newDist < oldDist || currentSolution.nInfeasible() < oldInfeasible, newBest);
+				if (newBest) {
 					bestSolution = new MtSolution(currentSolution);
 					printImproved();
+					offerIncumbent();
+					offerElite(bestSolution);
 				}
 			}
+			else {
+				move.update(false, false, false);
+			}
 
 			// [meta] update
-			temp *= COOLING_RATE;
+			schedule.coolDown();
 			it++;
+
+			if (it % ELITE_INTERVAL == 0) {
+				offerElite(currentSolution);
+			}
+		}
+
+		/* post-optimisation ------------------------------- */
+
+		if (pathRelinking) {
+			relinkElites();
 		}
 
 		/* finished ---------------------------------------- */
 
+		for (Move m : moves) {
+			if (m instanceof AlnsMove) {
+				listener.println(((AlnsMove) m).getStatistics());
+			}
+		}
+		if (repartitionMove != null) {
+			listener.println(repartitionMove.getStatistics());
+		}
+
 		listener.println("Finished in " + (System.currentTimeMillis() - startTime) / 1000 + " sec");
 		return bestSolution.convert();
 	}
 
+	/**
+	 * Stops the solver (from any thread); the best solution found so far is
+	 * returned by solve().
+	 */
 	public void stop() {
-		temp = 0;
+		stopped = true;
 	}
 
-	private double getCooling(double iterations, double initialTemp, double finalTemp) {
-		// at this cooling rate, the temp at it-1 will == 1
-		// thus at it it will be < 1
-		return Math.pow(finalTemp / initialTemp, 1d / (iterations - 1));
+	/**
+	 * Applies the repartitioning move to the current solution (the move only
+	 * modifies the solution if it improves it).
+	 */
+	private void repartition() {
+		long start = System.nanoTime();
+		currentSolution.begin();
+		boolean applied = repartitionMove.apply(currentSolution);
+		if (applied) {
+			currentSolution.commit();
+		}
+		else {
+			currentSolution.rollback();
+		}
+		repartitionNanos += System.nanoTime() - start;
+		if (!applied) return;
+
+		if (currentSolution.isFeasible() && currentSolution.objective() < bestSolution.objective()) {
+			bestSolution = new MtSolution(currentSolution);
+			printImproved();
+			offerIncumbent();
+			offerElite(bestSolution);
+		}
+	}
+
+	/**
+	 * Runs path relinking from each elite solution towards every worse elite
+	 * solution, until the time is up. The best intermediate solution of each
+	 * path is improved by RELINKING_ITERATIONS iterations of the moves at the
+	 * final temperature.
+	 */
+	private void relinkElites() {
+		ArrayList<MtSolution> elites = new ArrayList<>(elitePool.getElites());
+		int improvements = 0;
+		for (int i = 0; i < elites.size(); i++) {
+			for (int j = i + 1; j < elites.size(); j++) {
+				if (stopped || System.currentTimeMillis() >= deadline) break;
+
+				MtSolution intermediate = PathRelinking.relink(elites.get(i), elites.get(j), deadline);
+				if (intermediate == null) continue;
+				intermediate = localSearch(intermediate, RELINKING_ITERATIONS);
+				elitePool.offer(intermediate);
+				if (intermediate.objective() < bestSolution.objective()) {
+					bestSolution = intermediate;
+					improvements++;
+					printImproved();
+					offerIncumbent();
+				}
+			}
+		}
+		listener.println("Path relinking among " + elites.size() + " elite solutions: " + improvements + " improvements");
+	}
+
+	/**
+	 * Improves a solution with the moves, accepting worse solutions as the
+	 * annealing does at FINAL_TEMP; the best feasible solution found is
+	 * returned.
+	 */
+	private MtSolution localSearch(MtSolution solution, int iterations) {
+		MtSolution best = solution;
+		solution = new MtSolution(solution);
+		for (int i = 0; i < iterations; i++) {
+			if (i % CHECK_INTERVAL == 0 && (stopped || System.currentTimeMillis() >= deadline)) break;
+
+			Move move = moves.get(random.nextInt(moves.size()));
+			if (tryMove(random, move, solution, FINAL_TEMP) && solution.isFeasible() && solution.objective() < best.objective()) {
+				best = new MtSolution(solution);
+			}
+		}
+		return best;
+	}
+
+	private void offerElite(MtSolution solution) {
+		if (elitePool != null) {
+			elitePool.offer(solution);
+		}
+	}
+
+	private void offerIncumbent() {
+		if (incumbent != null && bestSolution.isFeasible() && incumbent.offer(bestSolution)) {
+			listener.improved(bestSolution.convert());
+		}
 	}
 
 	public void printProgress() {
@@ -122,29 +387,95 @@ public class Solver {
 	}
 
 	private String statsString() {
-		return String.format("%.2f%% (%.2f° %d sec)", ((double) it / maxIt) * 100, temp, (System.currentTimeMillis() - startTime) / 1000);
+		long now = System.currentTimeMillis();
+		double progress = schedule instanceof TimedQuenching ? ((TimedQuenching) schedule).getProgress() : (double) it / schedule.getMaxIterations();
+		if (deadline != Long.MAX_VALUE) {
+			progress = Math.max(progress, (double) (now - startTime) / (deadline - startTime));
+		}
+		return String.format("%.2f%% (%.2f° %d sec)", Math.min(1, progress) * 100, temp, (now - startTime) / 1000);
 	}
 
 	private void createMoves(Problem problem) {
 		moves.clear();
-		moves.add(new RuinAndRecreateMove(problem, random));
+		if (alns) {
+			moves.add(new AlnsMove(problem, random));
+		}
+		else {
+			moves.add(new RuinAndRecreateMove(problem, random));
+		}
+		repartitionMove = repartitioning ? new RepartitionMove(problem, random) : null;
 	}
 
-	private int calcMaxIt(double initialTemp, double finalTemp, double coolingRate) {
-		double a = Math.log(coolingRate);
-		double b = Math.log(finalTemp / initialTemp);
-		return (int) (b / a);
+	/**
+	 * Applies a move to a solution in place and keeps it if it does not
+	 * increase the number of infeasible leagues and accept() holds at the
+	 * given temperature; otherwise, the move is rolled back. The statistics of
+	 * the move are not updated.
+	 *
+	 * @return true if the move was applied and kept
+	 */
+	static boolean tryMove(Random random, Move move, MtSolution solution, double temperature) {
+		double oldDist = solution.objective();
+		int oldInfeasible = solution.nInfeasible();
+
+		solution.begin();
+		boolean applied = move.apply(solution);
+		if (applied && solution.nInfeasible() <= oldInfeasible && accept(random, oldDist, solution.objective(), temperature)) {
+			solution.commit();
+			return true;
+		}
+		solution.rollback();
+		return false;
+	}
+
+	/**
+	 * Improves a solution in place by simulated annealing with a single move,
+	 * cooling geometrically from initialTemp to FINAL_TEMP in the given number
+	 * of iterations. The stop condition is checked every CHECK_INTERVAL
+	 * iterations.
+	 */
+	static void anneal(Random random, Move move, MtSolution solution, int iterations, double initialTemp, BooleanSupplier stop) {
+		double temp = initialTemp;
+		double cooling = Math.pow(FINAL_TEMP / initialTemp, 1.0 / iterations);
+		for (int it = 0; it < iterations; it++, temp *= cooling) {
+			if (it % CHECK_INTERVAL == 0 && stop.getAsBoolean()) break;
+			tryMove(random, move, solution, temp);
+		}
+	}
+
+	/**
+	 * Improves a solution in place by simulated annealing with a single move,
+	 * following the cooling schedule until it is cooled down. The stop
+	 * condition is checked every CHECK_INTERVAL iterations.
+	 */
+	static void anneal(Random random, Move move, MtSolution solution, SaCoolingSchedule schedule, BooleanSupplier stop) {
+		for (int it = 0; !schedule.isCooledDown(); it++, schedule.coolDown()) {
+			if (it % CHECK_INTERVAL == 0 && stop.getAsBoolean()) break;
+			tryMove(random, move, solution, schedule.getTemp());
+		}
+	}
+
+	/**
+	 * Compares two solutions: fewer infeasible leagues first, then smaller
+	 * objective.
+	 */
+	static boolean isBetter(MtSolution a, MtSolution b) {
+		if (a.nInfeasible() != b.nInfeasible()) return a.nInfeasible() < b.nInfeasible();
+		return a.objective() < b.objective();
 	}
 
 	// Calculate the acceptance probability
-	private boolean accept(double oldEnergy, double newEnergy, double temperature) {
+	static boolean accept(Random random, double oldEnergy, double newEnergy, double temperature) {
 		// If the new solution is better, accept it
 		if (newEnergy < oldEnergy) {
 			return true;
 		}
-		// If the new solution is worse, calculate an acceptance probability
-		double prob = Math.exp((oldEnergy - newEnergy) / temperature);
-		return random.nextDouble() < prob;
+		// If the new solution is worse, accept it with probability exp(-delta / temp)
+		double delta = newEnergy - oldEnergy;
+		if (delta >= temperature * ACCEPT_TABLE_MAX) {
+			return false;
+		}
+		return delta < temperature * ACCEPT_TABLE[random.nextInt(ACCEPT_TABLE_SIZE)];
 	}
 
 }
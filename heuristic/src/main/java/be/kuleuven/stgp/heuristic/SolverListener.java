@@ -19,6 +19,15 @@ public interface SolverListener {
 		public void println(String str) {
 			System.out.println(str);
 		}
+
+		@Override
+		public void exchanged(double temps[], long attempts[], long accepted[]) {
+			StringBuilder sb = new StringBuilder("[swaps]");
+			for (int i = 0; i < attempts.length; i++) {
+				sb.append(String.format(" %.2f-%.2f: %.1f%%", temps[i], temps[i + 1], attempts[i] == 0 ? 0 : 100.0 * accepted[i] / attempts[i]));
+			}
+			System.out.println(sb);
+		}
 	};
 
 	SolverListener NULL_LISTENER = new SolverListener() {
@@ -32,4 +41,11 @@ public interface SolverListener {
 	void improved(Solution solution);
 	void println(String str);
 
+	/**
+	 * Reports the replica exchange statistics of ParallelTempering: for each
+	 * pair of adjacent temperatures (temps[i], temps[i + 1]), the number of
+	 * swaps attempted and accepted so far (nothing is done by default).
+	 */
+	default void exchanged(double temps[], long attempts[], long accepted[]) {}
+
 }
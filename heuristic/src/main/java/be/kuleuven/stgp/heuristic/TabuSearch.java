@@ -0,0 +1,344 @@
+package be.kuleuven.stgp.heuristic;
+
+import be.kuleuven.stgp.core.model.Problem;
+import be.kuleuven.stgp.core.model.Team;
+import be.kuleuven.stgp.core.model.solution.Solution;
+import be.kuleuven.stgp.heuristic.model.Constructive;
+import be.kuleuven.stgp.heuristic.model.League;
+import be.kuleuven.stgp.heuristic.model.MtSolution;
+import be.kuleuven.stgp.heuristic.move.Move;
+import be.kuleuven.stgp.heuristic.move.RuinAndRecreateMove;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Tabu search over the relocate (one team to another league) and swap (two
+ * teams of different leagues) neighbourhoods. At each iteration, both
+ * neighbourhoods are evaluated in full and the best admissible move is
+ * applied, even if it worsens the solution. The solution keeps, for every team
+ * and league, the sum of the costs between the team and the teams of the
+ * league (see MtSolution.enableLeagueCosts()), and the engine keeps the number
+ * of incompatible teams in the league, so that the delta and the feasibility
+ * of each move take O(1); both are updated in O(n) after each move.
+ * <p>
+ * When a team leaves a league, moving it back to that league is tabu for a
+ * random number of iterations in [MIN_TENURE, MIN_TENURE + TENURE_RANGE),
+ * unless the move leads to a new best solution (aspiration). Moves never
+ * create or destroy leagues: a team only leaves a league with more than
+ * minLeagueSize teams, and moves filling undersized leagues are preferred.
+ * <p>
+ * Since the number of leagues is fixed during the search, the initial
+ * solution is first improved by INITIAL_ITERATIONS iterations of simulated
+ * annealing with RuinAndRecreateMove, and after STAGNATION_LIMIT iterations
+ * without improvement the search restarts from the best solution perturbed by
+ * PERTURBATION_MOVES ruin and recreate moves (which may change the leagues).
+ */
+public class TabuSearch {
+
+	public static final int MIN_TENURE = 10;
+	public static final int TENURE_RANGE = 20;
+	public static final int STAGNATION_LIMIT = 1000;
+	public static final int PERTURBATION_MOVES = 20;
+	public static final int INITIAL_ITERATIONS = 20000;
+	public static final long ITERATIONS = 100_000;		// iterations without time limit
+
+	/* value of filling an undersized league, larger than any cost delta */
+	private static final double DEFICIT_WEIGHT = 1e12;
+	private static final double EPS = 1e-6;
+
+	private final SolverListener listener;
+	private final Random random;
+
+	private Solution initialSolution = null;
+	private volatile boolean stopped;
+
+	private Problem problem;
+	private MtSolution solution, bestSolution;
+	private Move perturbation;
+	private double maxPairCost;			// largest cost of two compatible teams
+	private long iteration;
+
+	/* best move of the current iteration */
+	private double moveValue;
+	private int nTies;
+
+	/* leagues of the current solution (fixed between restarts, so that their slots are the indexes below) */
+	private final ArrayList<League> leagues = new ArrayList<>();
+	private int leagueOf[];
+	private int incompatibles[][];		// [team][league]: number of teams of the league incompatible with the team
+	private long tabu[][];				// [team][league]: iteration until which the team cannot join the league
+
+	public TabuSearch(SolverListener listener) {
+		this(listener, 1);
+	}
+
+	public TabuSearch(SolverListener listener, long seed) {
+		this.listener = listener;
+		this.random = new Random(seed);
+	}
+
+	/**
+	 * Sets a solution to start from, instead of a constructed solution (see
+	 * Solver.setInitialSolution()); the initial annealing is skipped.
+	 *
+	 * @param initialSolution the solution to start from (or null to build one)
+	 */
+	public void setInitialSolution(Solution initialSolution) {
+		this.initialSolution = initialSolution;
+	}
+
+	/**
+	 * Solves the problem. If seconds is positive, the best solution is
+	 * returned when the time is up; otherwise, ITERATIONS iterations are run.
+	 *
+	 * @param problem the problem
+	 * @param seconds the time budget, in seconds (0 for no time limit)
+	 * @return the best solution found
+	 */
+	public Solution solve(Problem problem, int seconds) {
+		stopped = false;
+		long startTime = System.currentTimeMillis();
+		long deadline = seconds > 0 ? startTime + seconds * 1000L : Long.MAX_VALUE;
+		long maxIterations = seconds > 0 ? Long.MAX_VALUE : ITERATIONS;
+
+		this.problem = problem;
+		this.perturbation = new RuinAndRecreateMove(problem, random);
+		maxPairCost = 0;
+		for (Team a : problem.teams) {
+			for (Team b : problem.teams) {
+				if (a != b && a.isCompatible(b)) {
+					maxPairCost = Math.max(maxPairCost, a.getPairCost(b));
+				}
+			}
+		}
+		if (initialSolution != null) {
+			if (initialSolution.problem != problem) {
+				throw new IllegalArgumentException("The initial solution is not a solution of the problem.");
+			}
+			solution = Constructive.create(initialSolution, random);
+		}
+		else {
+			solution = Constructive.create(problem, random);
+			Solver.anneal(random, perturbation, solution, INITIAL_ITERATIONS, Solver.INITIAL_TEMP, () -> stopped || System.currentTimeMillis() >= deadline);
+		}
+		bestSolution = new MtSolution(solution);
+		report();
+
+		rebuild();
+		long lastImprovement = 0, restarts = 0;
+		for (iteration = 0; iteration < maxIterations; iteration++) {
+			if (stopped || System.currentTimeMillis() >= deadline) break;
+
+			step();
+			if (Solver.isBetter(solution, bestSolution)) {
+				bestSolution = new MtSolution(solution);
+				lastImprovement = iteration;
+				report();
+			}
+			else if (iteration - lastImprovement >= STAGNATION_LIMIT) {
+				restart();
+				lastImprovement = iteration;
+				restarts++;
+			}
+		}
+
+		listener.println("Tabu search finished in " + (System.currentTimeMillis() - startTime) / 1000 + " sec (" + iteration + " iterations, " + restarts + " restarts)");
+		return bestSolution.convert();
+	}
+
+	/**
+	 * Stops the search (from any thread); the best solution found so far is
+	 * returned by solve().
+	 */
+	public void stop() {
+		stopped = true;
+	}
+
+	/* search ------------------------------------------------------------------------------------------------------ */
+
+	/**
+	 * Evaluates the relocate and swap neighbourhoods and applies the best
+	 * admissible move (ties are broken at random).
+	 */
+	private void step() {
+		int minSize = problem.minLeagueSize, maxSize = problem.maxLeagueSize;
+		boolean feasible = solution.isFeasible();
+		double current = solution.objective();
+		double bestObjective = bestSolution.isFeasible() ? bestSolution.objective() : Double.MAX_VALUE;
+
+		Team moveTeam = null, moveOther = null;
+		int moveTarget = -1;
+		moveValue = Double.MAX_VALUE;
+		nTies = 0;
+
+		for (int a = 0; a < leagues.size(); a++) {
+			League source = leagues.get(a);
+			boolean canLeave = source.teams.size() > Math.max(1, minSize);
+
+			// relocate a team of a to another league
+			for (int i = 0; canLeave && i < source.teams.size(); i++) {
+				Team team = source.teams.get(i);
+				double teamCosts[] = solution.getLeagueCosts(team);
+				int teamIncompatibles[] = incompatibles[team.id];
+				long teamTabu[] = tabu[team.id];
+
+				for (int b = 0; b < leagues.size(); b++) {
+					if (b == a || teamIncompatibles[b] > 0) continue;
+					League target = leagues.get(b);
+					if (target.teams.size() >= maxSize) continue;
+
+					double delta = teamCosts[b] - teamCosts[a];
+					double value = target.teams.size() < minSize ? delta - DEFICIT_WEIGHT : delta;
+					if (value > moveValue + EPS) continue;
+
+					boolean aspiration = feasible && current + delta < bestObjective - EPS;
+					if ((teamTabu[b] <= iteration || aspiration) && target.canAddSameClub(team) && select(value)) {
+						moveTeam = team;
+						moveOther = null;
+						moveTarget = b;
+					}
+				}
+			}
+
+			// swap a team of a with a team of a later league (the leagues are
+			// visited in pairs so that the cost rows of their teams stay in cache)
+			if (source.teams.size() <= 1) continue;
+			for (int b = a + 1; b < leagues.size(); b++) {
+				League target = leagues.get(b);
+				if (target.teams.size() <= 1) continue;
+
+				for (int i = 0; i < source.teams.size(); i++) {
+					Team team = source.teams.get(i);
+					double teamCosts[] = solution.getLeagueCosts(team);
+					int teamIncompatibles = incompatibles[team.id][b];
+					if (teamIncompatibles > 1) continue;
+
+					for (int j = 0; j < target.teams.size(); j++) {
+						Team other = target.teams.get(j);
+
+						boolean compatible = team.isCompatible(other);
+						int pairIncompatible = compatible ? 0 : 1;
+						if (teamIncompatibles > pairIncompatible || incompatibles[other.id][a] > pairIncompatible) continue;
+
+						// the pair cost is at most the cost of each team to the other's league
+						// (and at most maxPairCost, if the teams are compatible)
+						double otherCosts[] = solution.getLeagueCosts(other);
+						double delta = teamCosts[b] - teamCosts[a] + otherCosts[a] - otherCosts[b];
+						double maxCost = Math.min(teamCosts[b], otherCosts[a]);
+						if (compatible) maxCost = Math.min(maxCost, maxPairCost);
+						if (delta - 2 * maxCost > moveValue + EPS) continue;
+
+						delta -= 2 * team.getPairCost(other);
+						if (delta > moveValue + EPS) continue;
+
+						boolean aspiration = feasible && current + delta < bestObjective - EPS;
+						if ((tabu[team.id][b] > iteration || tabu[other.id][a] > iteration) && !aspiration) continue;
+						if (team.club != other.club && (!target.canAddSameClub(team) || !source.canAddSameClub(other))) continue;
+						if (!select(delta)) continue;
+
+						moveTeam = team;
+						moveOther = other;
+						moveTarget = b;
+					}
+				}
+			}
+		}
+		if (moveTeam == null) return;
+
+		int a = leagueOf[moveTeam.id];
+		League source = leagues.get(a), target = leagues.get(moveTarget);
+		if (moveOther == null) {
+			source.removeTeam(moveTeam, source.deltaIfRemove(moveTeam));
+			target.addTeam(moveTeam, target.deltaIfAdd(moveTeam));
+		}
+		else {
+			source.removeTeam(moveTeam, source.deltaIfRemove(moveTeam));
+			target.removeTeam(moveOther, target.deltaIfRemove(moveOther));
+			source.addTeam(moveOther, source.deltaIfAdd(moveOther));
+			target.addTeam(moveTeam, target.deltaIfAdd(moveTeam));
+			relocate(moveOther, moveTarget, a);
+		}
+		relocate(moveTeam, a, moveTarget);
+	}
+
+	/**
+	 * Checks whether a move of the given value replaces the best move of the
+	 * iteration (among equal values, each move is kept with the same
+	 * probability).
+	 */
+	private boolean select(double value) {
+		if (value < moveValue - EPS) {
+			moveValue = value;
+			nTies = 1;
+			return true;
+		}
+		return value <= moveValue + EPS && random.nextInt(++nTies) == 0;
+	}
+
+	/**
+	 * Updates the incompatibility counts after a team moved from league a to
+	 * league b, and makes its return to a tabu.
+	 */
+	private void relocate(Team team, int a, int b) {
+		leagueOf[team.id] = b;
+		for (Team other : problem.teams) {
+			if (other != team && !team.isCompatible(other)) {
+				incompatibles[other.id][a]--;
+				incompatibles[other.id][b]++;
+			}
+		}
+		tabu[team.id][a] = iteration + MIN_TENURE + random.nextInt(TENURE_RANGE);
+	}
+
+	/**
+	 * Rebuilds the leagues and the caches from the current solution (the tabu
+	 * list is cleared).
+	 */
+	private void rebuild() {
+		solution.enableLeagueCosts();
+		int nTeams = problem.teams.length;
+		leagues.clear();
+		leagues.addAll(solution.getLeagues());
+		leagueOf = new int[nTeams];
+		incompatibles = new int[nTeams][leagues.size()];
+		tabu = new long[nTeams][leagues.size()];
+
+		for (int l = 0; l < leagues.size(); l++) {
+			for (Team member : leagues.get(l).teams) {
+				leagueOf[member.id] = l;
+				for (Team other : problem.teams) {
+					if (other != member && !member.isCompatible(other)) {
+						incompatibles[other.id][l]++;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Restarts from the best solution, perturbed by PERTURBATION_MOVES ruin
+	 * and recreate moves that do not increase the number of infeasible
+	 * leagues.
+	 */
+	private void restart() {
+		solution = new MtSolution(bestSolution);
+		for (int i = 0; i < PERTURBATION_MOVES; i++) {
+			int oldInfeasible = solution.nInfeasible();
+			solution.begin();
+			if (perturbation.apply(solution) && solution.nInfeasible() <= oldInfeasible) {
+				solution.commit();
+			}
+			else {
+				solution.rollback();
+			}
+		}
+		rebuild();
+	}
+
+	private void report() {
+		if (bestSolution.isFeasible()) {
+			listener.improved(bestSolution.convert());
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package be.kuleuven.stgp.heuristic;
+
+import be.kuleuven.stgp.core.model.*;
+import be.kuleuven.stgp.core.model.solution.*;
+
+import java.io.*;
+
+/**
+ * Re-optimises an existing solution (e.g. after small changes in the data):
+ * the solver starts from the given solution at a lower temperature.
+ * <p>
+ * Usage: WarmStartMain problem initialSolution outputSolution seconds
+ * [initialTemp] [nThreads]
+ */
+public class WarmStartMain {
+
+    public static void main(String[] args) throws IOException {
+        long startTimeMillis = System.currentTimeMillis();
+        String inputPath = args[0];
+        String initialPath = args[1];
+        String outputPath = args[2];
+        int seconds = new Integer(args[3]);
+        double initialTemp = args.length > 4 ? new Double(args[4]) : Solver.WARM_START_TEMP;
+        int nThreads = args.length > 5 ? new Integer(args[5]) : 1;
+
+        Problem problem = MovetexMain.readProblem(inputPath);
+        Solution initialSolution = new Solution(problem, initialPath);
+        System.out.printf("Initial solution cost: %d\n", initialSolution.getObjective());
+
+        Solution solution;
+        if (nThreads > 1) {
+            ParallelSolver solver = new ParallelSolver(SolverListener.PRINT_LISTENER, nThreads);
+            solver.setInitialSolution(initialSolution, initialTemp);
+            solution = solver.solve(problem, seconds);
+        }
+        else {
+            Solver solver = new Solver(SolverListener.PRINT_LISTENER);
+            solver.setInitialSolution(initialSolution, initialTemp);
+            solution = solver.solve(problem, seconds);
+        }
+
+        if (solution.validate(System.err)) {
+            System.out.printf("Solution cost: %d\n", solution.getObjective());
+            System.out.printf("Total runtime: %.2f seconds\n", (System.currentTimeMillis() - startTimeMillis) / 1000.0);
+            solution.write(outputPath);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package be.kuleuven.stgp.heuristic.alns;
+
+import java.util.Random;
+
+/**
+ * Roulette-wheel selection with adaptive weights. The scores obtained by each
+ * option are accumulated during a segment; at the end of the segment, the
+ * weight of every used option moves towards its average score:
+ * weight = (1 - reaction) * weight + reaction * score / uses.
+ */
+public class AdaptiveWeights {
+
+	/* weights never drop below MIN_WEIGHT, so that every option is still tried */
+	public static final double MIN_WEIGHT = 0.5;
+
+	private final double reaction;
+	private final double weights[];
+	private final double scores[];
+	private final int uses[];
+	private final long totalUses[];
+	private double totalWeight;
+
+	public AdaptiveWeights(int size, double reaction) {
+		this.reaction = reaction;
+		this.weights = new double[size];
+		this.scores = new double[size];
+		this.uses = new int[size];
+		this.totalUses = new long[size];
+		for (int i = 0; i < size; i++) {
+			weights[i] = 1;
+		}
+		this.totalWeight = size;
+	}
+
+	public int select(Random random) {
+		double value = random.nextDouble() * totalWeight;
+		for (int i = 0; i < weights.length - 1; i++) {
+			value -= weights[i];
+			if (value < 0) return i;
+		}
+		return weights.length - 1;
+	}
+
+	public void addScore(int index, double score) {
+		scores[index] += score;
+		uses[index]++;
+		totalUses[index]++;
+	}
+
+	/**
+	 * Ends the current segment, updating the weights and resetting the scores.
+	 */
+	public void endSegment() {
+		totalWeight = 0;
+		for (int i = 0; i < weights.length; i++) {
+			if (uses[i] > 0) {
+				weights[i] = Math.max(MIN_WEIGHT, (1 - reaction) * weights[i] + reaction * scores[i] / uses[i]);
+			}
+			totalWeight += weights[i];
+			scores[i] = 0;
+			uses[i] = 0;
+		}
+	}
+
+	public double getWeight(int index) {
+		return weights[index];
+	}
+
+	public long getTotalUses(int index) {
+		return totalUses[index];
+	}
+}
@@ -0,0 +1,107 @@
+package be.kuleuven.stgp.heuristic.alns;
+
+import be.kuleuven.stgp.core.model.Problem;
+import be.kuleuven.stgp.core.model.Team;
+import be.kuleuven.stgp.heuristic.model.MtSolution;
+import be.kuleuven.stgp.heuristic.move.Move;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Adaptive large neighbourhood search move: each application picks a ruin and
+ * a recreate operator by roulette wheel, removes between minRuin and maxRuin
+ * teams and reinserts them. The operators are rewarded (see update()) when the
+ * resulting solution is a new best, improves the current solution or is
+ * accepted, and their weights are adapted every SEGMENT_LENGTH applications.
+ */
+public class AlnsMove extends Move {
+
+	public static final double SCORE_NEW_BEST = 33;
+	public static final double SCORE_IMPROVED = 9;
+	public static final double SCORE_ACCEPTED = 13;
+
+	public static final int SEGMENT_LENGTH = 100;
+	public static final double REACTION = 0.1;
+
+	private final RuinOperator ruins[];
+	private final RecreateOperator recreates[];
+	private final AdaptiveWeights ruinWeights, recreateWeights;
+	private final int minRuin, maxRuin;
+
+	private final ArrayList<Team> removed = new ArrayList<>();
+	private int lastRuin = -1, lastRecreate = -1;
+	private int segmentIt = 0;
+
+	/**
+	 * Instantiates a new AlnsMove with the default operators (random,
+	 * geographic, worst-cost and level-band ruins; greedy, regret-2 and
+	 * regret-3 recreates, the regret recreates using the problem's candidate
+	 * lists), removing between 2 and 10% of the teams (at most
+	 * 60) per application.
+	 */
+	public AlnsMove(Problem problem, Random random) {
+		this(problem, random,
+		  Arrays.asList(new RandomRuin(problem, random), new GeographicRuin(problem, random),
+			new WorstCostRuin(problem, random), new LevelBandRuin(problem, random)),
+		  Arrays.asList(new GreedyRecreate(problem, random), new RegretRecreate(problem, random, 2, problem.getCandidateLists()),
+			new RegretRecreate(problem, random, 3, problem.getCandidateLists())),
+		  2, Math.max(2, Math.min(60, problem.teams.length / 10)));
+	}
+
+	public AlnsMove(Problem problem, Random random, List<RuinOperator> ruins, List<RecreateOperator> recreates, int minRuin, int maxRuin) {
+		super(problem, random);
+		this.ruins = ruins.toArray(new RuinOperator[ruins.size()]);
+		this.recreates = recreates.toArray(new RecreateOperator[recreates.size()]);
+		this.ruinWeights = new AdaptiveWeights(this.ruins.length, REACTION);
+		this.recreateWeights = new AdaptiveWeights(this.recreates.length, REACTION);
+		this.minRuin = minRuin;
+		this.maxRuin = maxRuin;
+	}
+
+	@Override
+	public boolean apply(MtSolution solution) {
+		lastRuin = ruinWeights.select(RANDOM);
+		lastRecreate = recreateWeights.select(RANDOM);
+
+		int nTeams = minRuin + RANDOM.nextInt(maxRuin - minRuin + 1);
+		removed.clear();
+		ruins[lastRuin].ruin(solution, nTeams, removed);
+		boolean recreated = recreates[lastRecreate].recreate(solution, removed);
+
+		assert !recreated || solution.debugSolution();
+		return recreated;
+	}
+
+	@Override
+	public void update(boolean accepted, boolean improved, boolean newBest) {
+		if (lastRuin < 0) return;
+
+		double score = newBest ? SCORE_NEW_BEST : improved ? SCORE_IMPROVED : accepted ? SCORE_ACCEPTED : 0;
+		ruinWeights.addScore(lastRuin, score);
+		recreateWeights.addScore(lastRecreate, score);
+		lastRuin = lastRecreate = -1;
+
+		if (++segmentIt == SEGMENT_LENGTH) {
+			ruinWeights.endSegment();
+			recreateWeights.endSegment();
+			segmentIt = 0;
+		}
+	}
+
+	/**
+	 * Gets the current weight and the number of uses of each operator.
+	 */
+	public String getStatistics() {
+		StringBuilder sb = new StringBuilder("ALNS operators:");
+		for (int i = 0; i < ruins.length; i++) {
+			sb.append(String.format(" %s=%.2f(%d)", ruins[i].getName(), ruinWeights.getWeight(i), ruinWeights.getTotalUses(i)));
+		}
+		for (int i = 0; i < recreates.length; i++) {
+			sb.append(String.format(" %s=%.2f(%d)", recreates[i].getName(), recreateWeights.getWeight(i), recreateWeights.getTotalUses(i)));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,45 @@
+package be.kuleuven.stgp.heuristic.alns;
+
+import be.kuleuven.stgp.core.model.Club;
+import be.kuleuven.stgp.core.model.Problem;
+import be.kuleuven.stgp.core.model.Team;
+import be.kuleuven.stgp.core.util.KdTree;
+import be.kuleuven.stgp.heuristic.model.MtSolution;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Removes the teams of the clubs closest to a random team's club (using the
+ * club coordinates), so that the leagues of a region can be rebuilt together.
+ */
+public class GeographicRuin extends RuinOperator {
+
+	private final KdTree clubIndex;
+	private final double teamsPerClub;
+
+	public GeographicRuin(Problem problem, Random random) {
+		super(problem, random);
+		this.clubIndex = problem.getClubIndex();
+		this.teamsPerClub = Math.max(1.0, (double) problem.teams.length / problem.clubs.length);
+	}
+
+	@Override
+	public void ruin(MtSolution solution, int nTeams, ArrayList<Team> removed) {
+		Club club = PROBLEM.teams[RANDOM.nextInt(PROBLEM.teams.length)].club;
+
+		// twice the expected number of clubs, since some teams are skipped
+		int nClubs = Math.min(PROBLEM.clubs.length, 2 * (int) Math.ceil(nTeams / teamsPerClub) + 1);
+		int nearestClubs[] = clubIndex.nearest(PROBLEM.getClubX(club), PROBLEM.getClubY(club), nClubs);
+
+		int count = 0;
+		for (int c = 0; c < nearestClubs.length && count < nTeams; c++) {
+			for (Team team : PROBLEM.clubs[nearestClubs[c]].teams) {
+				if (count == nTeams) break;
+				if (RANDOM.nextDouble() < 0.75 && remove(solution, team, removed)) {
+					count++;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package be.kuleuven.stgp.heuristic.alns;
+
+import be.kuleuven.stgp.core.model.Problem;
+import be.kuleuven.stgp.core.model.Team;
+import be.kuleuven.stgp.heuristic.model.MtSolution;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * Inserts the removed teams one at a time, in random order, with BestFit:
+ * first into the infeasible leagues and then into any league.
+ */
+public class GreedyRecreate extends RecreateOperator {
+
+	public GreedyRecreate(Problem problem, Random random) {
+		super(problem, random);
+	}
+
+	@Override
+	public boolean recreate(MtSolution solution, ArrayList<Team> removed) {
+		Collections.shuffle(removed, RANDOM);
+		openLeagues(solution, removed);
+
+		/* fill the infeasible leagues first */
+		for (int i = 0; i < removed.size(); i++) {
+			if (BESTFIT.insertAtBest(solution.getInfeasibleLeagues(), removed.get(i))) {
+				removed.remove(i--);
+			}
+		}
+
+		/* add the remaining teams */
+		BESTFIT.insertAtBest(solution.getLeagues(), removed);
+		return removed.isEmpty();
+	}
+}
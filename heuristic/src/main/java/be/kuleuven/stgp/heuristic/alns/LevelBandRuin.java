@@ -0,0 +1,62 @@
+package be.kuleuven.stgp.heuristic.alns;
+
+import be.kuleuven.stgp.core.model.Problem;
+import be.kuleuven.stgp.core.model.Team;
+import be.kuleuven.stgp.heuristic.model.MtSolution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * Removes the teams closest (in weighted distance and time) to a random team
+ * among those whose level lies in a band of width maxLevelDiff containing the
+ * random team's level, so that leagues of neighbouring levels can exchange
+ * teams.
+ */
+public class LevelBandRuin extends RuinOperator {
+
+	private final Team teamsByLevel[];
+
+	public LevelBandRuin(Problem problem, Random random) {
+		super(problem, random);
+		this.teamsByLevel = problem.teams.clone();
+		Arrays.sort(teamsByLevel, Comparator.comparingInt(team -> team.level));
+	}
+
+	@Override
+	public void ruin(MtSolution solution, int nTeams, ArrayList<Team> removed) {
+		Team seed = PROBLEM.teams[RANDOM.nextInt(PROBLEM.teams.length)];
+		int minLevel = seed.level - RANDOM.nextInt(PROBLEM.maxLevelDiff + 1);
+		int maxLevel = minLevel + PROBLEM.maxLevelDiff;
+
+		int from = firstWithLevel(minLevel);
+		int to = firstWithLevel(maxLevel + 1);
+
+		// sorting the band by weighted distance and time to the seed (ties broken by id)
+		long keys[] = new long[to - from];
+		for (int i = from; i < to; i++) {
+			Team team = teamsByLevel[i];
+			keys[i - from] = ((long) PROBLEM.pairCost(seed.id, team.id) << 32) | team.id;
+		}
+		Arrays.sort(keys);
+
+		int count = 0;
+		for (int i = 0; i < keys.length && count < nTeams; i++) {
+			if (remove(solution, PROBLEM.teams[(int) keys[i]], removed)) {
+				count++;
+			}
+		}
+	}
+
+	private int firstWithLevel(int level) {
+		int lo = 0, hi = teamsByLevel.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (teamsByLevel[mid].level < level) lo = mid + 1;
+			else hi = mid;
+		}
+		return lo;
+	}
+}
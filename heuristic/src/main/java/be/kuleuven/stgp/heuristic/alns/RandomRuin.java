@@ -0,0 +1,25 @@
+package be.kuleuven.stgp.heuristic.alns;
+
+import be.kuleuven.stgp.core.model.Problem;
+import be.kuleuven.stgp.core.model.Team;
+import be.kuleuven.stgp.heuristic.model.MtSolution;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Removes teams chosen uniformly at random.
+ */
+public class RandomRuin extends RuinOperator {
+
+	public RandomRuin(Problem problem, Random random) {
+		super(problem, random);
+	}
+
+	@Override
+	public void ruin(MtSolution solution, int nTeams, ArrayList<Team> removed) {
+		for (int i = 0; i < nTeams; i++) {
+			remove(solution, PROBLEM.teams[RANDOM.nextInt(PROBLEM.teams.length)], removed);
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package be.kuleuven.stgp.heuristic.alns;
+
+import be.kuleuven.stgp.core.model.Problem;
+import be.kuleuven.stgp.core.model.Team;
+import be.kuleuven.stgp.heuristic.model.BestFit;
+import be.kuleuven.stgp.heuristic.model.MtSolution;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Recreate operator of the adaptive large neighbourhood search: reinserts the
+ * teams removed by a RuinOperator. Before inserting, some of the removed teams
+ * may be used to open new leagues (with probability newLeagueProbability).
+ */
+public abstract class RecreateOperator {
+
+	protected final Problem PROBLEM;
+	protected final Random RANDOM;
+	protected final BestFit BESTFIT;
+
+	private double newLeagueProbability = 0.5;
+
+	protected RecreateOperator(Problem problem, Random random) {
+		this.PROBLEM = problem;
+		this.RANDOM = random;
+		this.BESTFIT = new BestFit(problem, random);
+	}
+
+	public void setNewLeagueProbability(double newLeagueProbability) {
+		this.newLeagueProbability = newLeagueProbability;
+	}
+
+	/**
+	 * Reinserts the removed teams. If some team cannot be inserted, false is
+	 * returned and the solution must be rolled back by the caller.
+	 *
+	 * @param solution the solution to modify
+	 * @param removed  the teams to insert (inserted teams are removed from the list)
+	 * @return true if every team was inserted and false otherwise
+	 */
+	public abstract boolean recreate(MtSolution solution, ArrayList<Team> removed);
+
+	/**
+	 * Opens between 1 and removed.size() / minLeagueSize new leagues (with
+	 * probability newLeagueProbability), each one with a random removed team.
+	 */
+	protected void openLeagues(MtSolution solution, ArrayList<Team> removed) {
+		int maxNewLeagues = removed.size() / PROBLEM.minLeagueSize;
+		if (maxNewLeagues > 0 && RANDOM.nextDouble() < newLeagueProbability) {
+			int nNewLeagues = RANDOM.nextInt(maxNewLeagues) + 1;
+			for (int i = 0; i < nNewLeagues; i++) {
+				Team team = removed.remove(RANDOM.nextInt(removed.size()));
+				BESTFIT.insertInNewLeague(solution, team);
+			}
+		}
+	}
+
+	public String getName() {
+		return getClass().getSimpleName();
+	}
+}
@@ -0,0 +1,290 @@
+package be.kuleuven.stgp.heuristic.alns;
+
+import be.kuleuven.stgp.core.model.CandidateLists;
+import be.kuleuven.stgp.core.model.Problem;
+import be.kuleuven.stgp.core.model.Team;
+import be.kuleuven.stgp.heuristic.model.League;
+import be.kuleuven.stgp.heuristic.model.MtSolution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Regret-k insertion: at each step, the team with the largest regret (sum of
+ * the differences between its k-1 next best insertion deltas and its best one)
+ * is inserted at its best league. Teams with less than k feasible leagues are
+ * inserted first (fewest options first). As in GreedyRecreate, the infeasible
+ * leagues are filled before the others.
+ * <p>
+ * The insertion deltas of every (team, league) pair are computed once and
+ * cached; after an insertion, only the entries of the league that received
+ * the team are recomputed. The teams are kept in an indexed binary heap
+ * ordered by regret, and a team's k best leagues are only searched again
+ * (in the cache) when one of them is the league that changed: adding a team
+ * never decreases the insertion delta of a league nor makes it feasible, so
+ * the other leagues cannot enter the k best.
+ * <p>
+ * If candidate lists are given, a team is only evaluated in the leagues of
+ * its candidates (its cheapest compatible teams) when the remaining teams are
+ * added; the other leagues are only evaluated for the teams that fit none of
+ * these leagues. The infeasible leagues are always evaluated for every team.
+ */
+public class RegretRecreate extends RecreateOperator {
+
+	private static final double INFEASIBLE = Double.POSITIVE_INFINITY;
+	private static final double UNEVALUATED = Double.NEGATIVE_INFINITY;
+
+	public final int k;
+	private final CandidateLists candidates;
+
+	/* cache: deltas[i * nLeagues + j] is the delta of inserting team i into league j */
+	private double deltas[] = new double[0];
+
+	/* k best leagues of each team (indexes in the leagues array), their number and the regret */
+	private int bestLeagues[] = new int[0];
+	private int nOptions[] = new int[0];
+	private double regrets[] = new double[0];
+
+	/* indexed max-heap of teams (heapPos[i] is -1 once team i is inserted) */
+	private int heap[] = new int[0];
+	private int heapPos[] = new int[0];
+	private int heapSize;
+
+	private MtSolution solution;
+	private Team teams[];
+	private League leagues[];
+	private int nLeagues;
+	private boolean undersizedOnly;
+
+	public RegretRecreate(Problem problem, Random random, int k) {
+		this(problem, random, k, null);
+	}
+
+	/**
+	 * Instantiates a new RegretRecreate.
+	 *
+	 * @param candidates the candidate lists restricting the leagues evaluated
+	 *                   for each team (or null to evaluate every league)
+	 */
+	public RegretRecreate(Problem problem, Random random, int k, CandidateLists candidates) {
+		super(problem, random);
+		this.k = k;
+		this.candidates = candidates;
+	}
+
+	@Override
+	public boolean recreate(MtSolution solution, ArrayList<Team> removed) {
+		this.solution = solution;
+		openLeagues(solution, removed);
+
+		/* fill the infeasible leagues first */
+		insert(solution.getInfeasibleLeagues(), removed, true);
+
+		/* add the remaining teams */
+		insert(solution.getLeagues(), removed, false);
+		this.solution = null;
+		return removed.isEmpty();
+	}
+
+	/**
+	 * Inserts teams (by decreasing regret) until none of them fits any league.
+	 * If undersizedOnly is set, leagues only accept teams while they have less
+	 * than minLeagueSize teams.
+	 */
+	private void insert(ArrayList<League> leagueList, ArrayList<Team> removed, boolean undersizedOnly) {
+		int nTeams = removed.size();
+		if (nTeams == 0 || leagueList.isEmpty()) return;
+
+		// the list of infeasible leagues changes while teams are inserted
+		this.leagues = leagueList.toArray(new League[leagueList.size()]);
+		this.nLeagues = leagues.length;
+		this.teams = removed.toArray(new Team[nTeams]);
+		this.undersizedOnly = undersizedOnly;
+		ensureCapacity(nTeams);
+
+		heapSize = 0;
+		for (int i = 0; i < nTeams; i++) {
+			if (candidates == null || undersizedOnly || !evaluateCandidates(i)) {
+				for (int j = 0; j < nLeagues; j++) {
+					deltas[i * nLeagues + j] = evaluate(leagues[j], teams[i]);
+				}
+			}
+			computeBest(i);
+			heap[heapSize] = i;
+			heapPos[i] = heapSize++;
+			siftUp(heapPos[i]);
+		}
+
+		while (heapSize > 0 && nOptions[heap[0]] > 0) {
+			int i = heap[0];
+			int b = bestLeagues[i * k];
+			leagues[b].addTeam(teams[i], deltas[i * nLeagues + b]);
+			removeTop();
+
+			// only the entries of league b change
+			for (int r = 0; r < nTeams; r++) {
+				if (heapPos[r] < 0 || deltas[r * nLeagues + b] == INFEASIBLE) continue;
+				deltas[r * nLeagues + b] = evaluate(leagues[b], teams[r]);
+				if (isBest(r, b)) {
+					computeBest(r);
+					siftUp(heapPos[r]);
+					siftDown(heapPos[r]);
+				}
+			}
+		}
+
+		removed.clear();
+		for (int i = 0; i < nTeams; i++) {
+			if (heapPos[i] >= 0) {
+				removed.add(teams[i]);
+			}
+		}
+		this.teams = null;
+		this.leagues = null;
+	}
+
+	private double evaluate(League league, Team team) {
+		if (undersizedOnly && league.canRemoveSize(0)) return INFEASIBLE;
+		if (!league.canAddSize(1)) return INFEASIBLE;
+		if (!league.canAddLevel(team)) return INFEASIBLE;
+		if (!league.canAddTimeDist(team)) return INFEASIBLE;
+		if (!league.canAddSameClub(team)) return INFEASIBLE;
+		return league.deltaIfAdd(team);
+	}
+
+	/**
+	 * Evaluates team i in the leagues of its candidates, the other leagues
+	 * being marked as infeasible; returns false if none of these leagues can
+	 * receive the team. The leagues must be those of the solution, in order.
+	 */
+	private boolean evaluateCandidates(int i) {
+		int row = i * nLeagues;
+		Arrays.fill(deltas, row, row + nLeagues, UNEVALUATED);
+
+		boolean found = false;
+		for (int id : candidates.getCandidates(teams[i].id)) {
+			League league = solution.getLeague(PROBLEM.teams[id]);
+			if (league == null || deltas[row + league.getSlot()] != UNEVALUATED) continue;
+
+			assert leagues[league.getSlot()] == league;
+			double delta = evaluate(league, teams[i]);
+			deltas[row + league.getSlot()] = delta;
+			found |= delta != INFEASIBLE;
+		}
+
+		for (int j = 0; j < nLeagues; j++) {
+			if (deltas[row + j] == UNEVALUATED) {
+				deltas[row + j] = INFEASIBLE;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Searches the cached deltas of team i for its k best leagues and updates
+	 * its number of options and regret.
+	 */
+	private void computeBest(int i) {
+		int row = i * nLeagues, best = i * k;
+		int size = 0;
+
+		for (int j = 0; j < nLeagues; j++) {
+			double delta = deltas[row + j];
+			if (delta == INFEASIBLE) continue;
+			if (size == k && delta >= deltas[row + bestLeagues[best + k - 1]]) continue;
+
+			// insertion sort in the (small) list of best leagues
+			int pos = size < k ? size++ : k - 1;
+			while (pos > 0 && deltas[row + bestLeagues[best + pos - 1]] > delta) {
+				bestLeagues[best + pos] = bestLeagues[best + pos - 1];
+				pos--;
+			}
+			bestLeagues[best + pos] = j;
+		}
+
+		double regret = 0;
+		for (int j = 1; j < size; j++) {
+			regret += deltas[row + bestLeagues[best + j]] - deltas[row + bestLeagues[best]];
+		}
+		nOptions[i] = size;
+		regrets[i] = regret;
+	}
+
+	private boolean isBest(int i, int league) {
+		for (int j = 0; j < nOptions[i]; j++) {
+			if (bestLeagues[i * k + j] == league) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if team a must be inserted before team b: teams without options
+	 * go last, then teams with fewer options come first, then larger regrets
+	 * and then smaller best deltas.
+	 */
+	private boolean precedes(int a, int b) {
+		if (nOptions[a] == 0 || nOptions[b] == 0) return nOptions[a] > nOptions[b];
+		if (nOptions[a] != nOptions[b]) return nOptions[a] < nOptions[b];
+		if (regrets[a] != regrets[b]) return regrets[a] > regrets[b];
+		return deltas[a * nLeagues + bestLeagues[a * k]] < deltas[b * nLeagues + bestLeagues[b * k]];
+	}
+
+	/* indexed binary heap ----------------------------------------------------------------------------------------- */
+
+	private void removeTop() {
+		heapPos[heap[0]] = -1;
+		if (--heapSize > 0) {
+			heap[0] = heap[heapSize];
+			heapPos[heap[0]] = 0;
+			siftDown(0);
+		}
+	}
+
+	private void siftUp(int pos) {
+		int i = heap[pos];
+		while (pos > 0) {
+			int parent = (pos - 1) >>> 1;
+			if (!precedes(i, heap[parent])) break;
+			heap[pos] = heap[parent];
+			heapPos[heap[pos]] = pos;
+			pos = parent;
+		}
+		heap[pos] = i;
+		heapPos[i] = pos;
+	}
+
+	private void siftDown(int pos) {
+		int i = heap[pos];
+		while (true) {
+			int child = 2 * pos + 1;
+			if (child >= heapSize) break;
+			if (child + 1 < heapSize && precedes(heap[child + 1], heap[child])) child++;
+			if (!precedes(heap[child], i)) break;
+			heap[pos] = heap[child];
+			heapPos[heap[pos]] = pos;
+			pos = child;
+		}
+		heap[pos] = i;
+		heapPos[i] = pos;
+	}
+
+	private void ensureCapacity(int nTeams) {
+		if (deltas.length < nTeams * nLeagues) {
+			deltas = new double[Math.max(nTeams * nLeagues, 2 * deltas.length)];
+		}
+		if (nOptions.length < nTeams) {
+			int capacity = Math.max(nTeams, 2 * nOptions.length);
+			bestLeagues = new int[capacity * k];
+			nOptions = new int[capacity];
+			regrets = new double[capacity];
+			heap = new int[capacity];
+			heapPos = new int[capacity];
+		}
+	}
+
+	@Override
+	public String getName() {
+		return "Regret" + k + "Recreate";
+	}
+}
@@ -0,0 +1,50 @@
+package be.kuleuven.stgp.heuristic.alns;
+
+import be.kuleuven.stgp.core.model.Problem;
+import be.kuleuven.stgp.core.model.Team;
+import be.kuleuven.stgp.heuristic.model.League;
+import be.kuleuven.stgp.heuristic.model.MtSolution;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Ruin operator of the adaptive large neighbourhood search: removes a number
+ * of teams from a solution, which are then reinserted by a RecreateOperator.
+ */
+public abstract class RuinOperator {
+
+	protected final Problem PROBLEM;
+	protected final Random RANDOM;
+
+	protected RuinOperator(Problem problem, Random random) {
+		this.PROBLEM = problem;
+		this.RANDOM = random;
+	}
+
+	/**
+	 * Removes (at most) nTeams teams from the solution.
+	 *
+	 * @param solution the solution to modify
+	 * @param nTeams   the number of teams to remove
+	 * @param removed  the list the removed teams are appended to
+	 */
+	public abstract void ruin(MtSolution solution, int nTeams, ArrayList<Team> removed);
+
+	/**
+	 * Removes a team from its league (if it is still assigned).
+	 *
+	 * @return true if the team was removed and false otherwise
+	 */
+	protected boolean remove(MtSolution solution, Team team, ArrayList<Team> removed) {
+		League league = solution.getLeague(team);
+		if (league == null) return false;
+		league.removeTeam(team, league.deltaIfRemove(team));
+		removed.add(team);
+		return true;
+	}
+
+	public String getName() {
+		return getClass().getSimpleName();
+	}
+}
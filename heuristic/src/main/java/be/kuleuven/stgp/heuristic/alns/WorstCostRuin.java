@@ -0,0 +1,52 @@
+package be.kuleuven.stgp.heuristic.alns;
+
+import be.kuleuven.stgp.core.model.Problem;
+import be.kuleuven.stgp.core.model.Team;
+import be.kuleuven.stgp.heuristic.model.League;
+import be.kuleuven.stgp.heuristic.model.MtSolution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Removes the teams with the largest cost per opponent in their leagues. The
+ * teams are ranked once, and the i-th removed team is drawn with a bias
+ * towards the top of the ranking (rank = random^RANDOMNESS * size).
+ */
+public class WorstCostRuin extends RuinOperator {
+
+	public static final double RANDOMNESS = 3;
+
+	public WorstCostRuin(Problem problem, Random random) {
+		super(problem, random);
+	}
+
+	@Override
+	public void ruin(MtSolution solution, int nTeams, ArrayList<Team> removed) {
+		Team ranking[] = new Team[PROBLEM.teams.length];
+		double costs[] = new double[PROBLEM.teams.length];
+		Integer order[] = new Integer[PROBLEM.teams.length];
+		int size = 0;
+
+		for (League league : solution.getLeagues()) {
+			if (league.teams.size() < 2) continue;
+			for (Team team : league.teams) {
+				ranking[size] = team;
+				costs[size] = -league.deltaIfRemove(team) / (league.teams.size() - 1);
+				order[size] = size;
+				size++;
+			}
+		}
+		Arrays.sort(order, 0, size, (a, b) -> Double.compare(costs[b], costs[a]));
+
+		ArrayList<Team> candidates = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			candidates.add(ranking[order[i]]);
+		}
+		for (int i = 0; i < nTeams && !candidates.isEmpty(); i++) {
+			int rank = (int) (Math.pow(RANDOM.nextDouble(), RANDOMNESS) * candidates.size());
+			remove(solution, candidates.remove(rank), removed);
+		}
+	}
+}
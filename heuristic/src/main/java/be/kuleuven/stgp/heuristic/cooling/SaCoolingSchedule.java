@@ -32,6 +32,35 @@ public abstract class SaCoolingSchedule {
 
 	public abstract void reset();
 
+	/**
+	 * Creates a cooling schedule from its name: "boltzmann", "cauchy",
+	 * "dimensional" and "quenching" use the given number of iterations, while
+	 * "timed" uses the given time budget.
+	 *
+	 * @param name         the name of the schedule
+	 * @param iterations   the number of iterations
+	 * @param budgetMillis the time budget, in milliseconds
+	 * @param initialTemp  the initial temperature
+	 * @param finalTemp    the final temperature
+	 * @return the cooling schedule
+	 */
+	public static SaCoolingSchedule create(String name, int iterations, long budgetMillis, double initialTemp, double finalTemp) {
+		switch (name.toLowerCase()) {
+			case "boltzmann":
+				return new Boltzmann(iterations);
+			case "cauchy":
+				return new Cauchy(iterations);
+			case "dimensional":
+				return new Dimensional(iterations, initialTemp, 1.0);
+			case "quenching":
+				return new Quenching(iterations, initialTemp, finalTemp);
+			case "timed":
+				return new TimedQuenching(budgetMillis, initialTemp, finalTemp);
+			default:
+				throw new IllegalArgumentException("unknown cooling schedule: " + name);
+		}
+	}
+
 	public static void main(String[] args){
 		double INITIAL = 100;
 		double FINAL = 1;
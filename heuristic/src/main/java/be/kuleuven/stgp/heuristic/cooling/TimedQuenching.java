@@ -0,0 +1,59 @@
+package be.kuleuven.stgp.heuristic.cooling;
+
+/**
+ * Geometric cooling driven by wall-clock time: the temperature goes from the
+ * initial to the final one as the time budget is consumed, regardless of the
+ * number of iterations. The clock is only read every CHECK_INTERVAL calls
+ * to coolDown(); the time budget starts when reset() is called.
+ */
+public class TimedQuenching extends SaCoolingSchedule {
+
+	public static final int CHECK_INTERVAL = 1024;
+
+	private final long BUDGET_MS;
+
+	private long startTime;
+	private int iterations;
+	private boolean cooledDown;
+
+	public TimedQuenching(long budgetMillis, double initialTemp, double finalTemp) {
+		super(Integer.MAX_VALUE, initialTemp, finalTemp);
+		BUDGET_MS = Math.max(1, budgetMillis);
+		reset();
+	}
+
+	@Override
+	public void coolDown() {
+		if (++iterations % CHECK_INTERVAL == 0) {
+			update();
+		}
+	}
+
+	/**
+	 * Gets the fraction of the time budget already consumed.
+	 *
+	 * @return the progress, between 0 and 1
+	 */
+	public double getProgress() {
+		return Math.min(1, (double) (System.currentTimeMillis() - startTime) / BUDGET_MS);
+	}
+
+	@Override
+	public boolean isCooledDown() {
+		return cooledDown;
+	}
+
+	@Override
+	public void reset() {
+		temp = INITIAL_TEMP;
+		startTime = System.currentTimeMillis();
+		iterations = 0;
+		cooledDown = false;
+	}
+
+	private void update() {
+		double progress = getProgress();
+		temp = INITIAL_TEMP * Math.pow(FINAL_TEMP / INITIAL_TEMP, progress);
+		cooledDown = progress >= 1;
+	}
+}
@@ -0,0 +1,102 @@
+package be.kuleuven.stgp.heuristic.model;
+
+import java.util.Arrays;
+
+/**
+ * Small open-addressing (linear probing) map from club ids to the number of
+ * teams of each club in a league. Entries whose count drops to zero are
+ * deleted by backward shifting, so no tombstones are left behind.
+ */
+class ClubCounter {
+
+	private int keys[];
+	private int counts[];
+	private int mask;
+	private int size;
+
+	ClubCounter(int expectedClubs) {
+		int capacity = Integer.highestOneBit(Math.max(4, 2 * expectedClubs) - 1) << 1;
+		this.keys = new int[capacity];
+		this.counts = new int[capacity];
+		this.mask = capacity - 1;
+		Arrays.fill(keys, -1);
+	}
+
+	ClubCounter(ClubCounter counter) {
+		this.keys = counter.keys.clone();
+		this.counts = counter.counts.clone();
+		this.mask = counter.mask;
+		this.size = counter.size;
+	}
+
+	int get(int club) {
+		for (int i = slot(club); ; i = (i + 1) & mask) {
+			if (keys[i] == club) return counts[i];
+			if (keys[i] == -1) return 0;
+		}
+	}
+
+	void increment(int club) {
+		int i = slot(club);
+		while (keys[i] != club && keys[i] != -1) {
+			i = (i + 1) & mask;
+		}
+		if (keys[i] == -1) {
+			if (2 * (size + 1) > keys.length) {
+				grow();
+				increment(club);
+				return;
+			}
+			keys[i] = club;
+			size++;
+		}
+		counts[i]++;
+	}
+
+	void decrement(int club) {
+		int i = slot(club);
+		while (keys[i] != club) {
+			assert keys[i] != -1 : "club " + club + " is not in the league";
+			i = (i + 1) & mask;
+		}
+		if (--counts[i] > 0) return;
+
+		// backward shift deletion
+		size--;
+		for (int j = (i + 1) & mask; keys[j] != -1; j = (j + 1) & mask) {
+			int home = slot(keys[j]);
+			// entry j can move to i if its home slot is not in (i, j]
+			if (((j - home) & mask) >= ((j - i) & mask)) {
+				keys[i] = keys[j];
+				counts[i] = counts[j];
+				i = j;
+			}
+		}
+		keys[i] = -1;
+		counts[i] = 0;
+	}
+
+	private void grow() {
+		int oldKeys[] = keys, oldCounts[] = counts;
+		keys = new int[oldKeys.length * 2];
+		counts = new int[oldKeys.length * 2];
+		mask = keys.length - 1;
+		size = 0;
+		Arrays.fill(keys, -1);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != -1) {
+				int j = slot(oldKeys[i]);
+				while (keys[j] != -1) {
+					j = (j + 1) & mask;
+				}
+				keys[j] = oldKeys[i];
+				counts[j] = oldCounts[i];
+				size++;
+			}
+		}
+	}
+
+	private int slot(int club) {
+		return ((club * 0x9E3779B9) >>> 16) & mask;
+	}
+}
@@ -2,6 +2,7 @@ package be.kuleuven.stgp.heuristic.model;
 
 import be.kuleuven.stgp.core.model.Problem;
 import be.kuleuven.stgp.core.model.Team;
+import be.kuleuven.stgp.core.model.solution.Solution;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -31,4 +32,79 @@ public class Constructive {
 		return solution;
 	}
 
+	/**
+	 * Creates a solution from an existing (core) solution of the problem, e.g.
+	 * a schedule computed before small changes in the data. The leagues are
+	 * kept, except for the teams that violate a constraint of the league they
+	 * would join (teams are added in the order of the file) or that appear
+	 * twice; these teams and the teams absent from the solution are inserted
+	 * as described in complete().
+	 */
+	public static MtSolution create(Solution initialSolution, Random random) {
+		Problem problem = initialSolution.problem;
+		BestFit bestFit = new BestFit(problem, random);
+		MtSolution solution = new MtSolution(problem);
+		ArrayList<Team> leftovers = new ArrayList<>();
+		boolean seen[] = new boolean[problem.teams.length];
+
+		for (be.kuleuven.stgp.core.model.solution.League initialLeague : initialSolution) {
+			League league = null;
+			for (Team team : initialLeague) {
+				if (seen[team.id]) continue;
+				seen[team.id] = true;
+				if (league == null) {
+					league = new League(solution, team);
+				} else if (league.canAddSize(1) && league.canAddLevel(team) && league.canAddTimeDist(team) && league.canAddSameClub(team)) {
+					league.addTeam(team, league.deltaIfAdd(team));
+				} else {
+					leftovers.add(team);
+				}
+			}
+		}
+
+		for (Team team : problem.teams) {
+			if (!seen[team.id]) {
+				leftovers.add(team);
+			}
+		}
+		complete(solution, leftovers, bestFit, random);
+
+		assert solution.debugSolution();
+		assert solution.objective() == solution.convert().getObjective() : solution.objective() + " should be " + solution.convert().getObjective();
+
+		return solution;
+	}
+
+	/**
+	 * Completes a partial solution: the unassigned teams are inserted with
+	 * BestFit, in random order (into the infeasible leagues, if possible).
+	 * Then, the infeasible leagues whose teams all fit in other leagues are
+	 * dissolved.
+	 */
+	static void complete(MtSolution solution, ArrayList<Team> leftovers, BestFit bestFit, Random random) {
+		Collections.shuffle(leftovers, random);
+		for (int i = 0; i < leftovers.size(); i++) {
+			Team team = leftovers.get(i);
+			if (!bestFit.insertAtBest(solution.getInfeasibleLeagues(), team)) {
+				bestFit.insertAtBestOrNew(solution, team);
+			}
+		}
+
+		// the infeasible leagues are dissolved, if all their teams fit elsewhere
+		ArrayList<League> infeasibleLeagues = new ArrayList<>(solution.getInfeasibleLeagues());
+		for (League league : infeasibleLeagues) {
+			ArrayList<Team> teams = new ArrayList<>(league.teams);
+			solution.begin();
+			for (Team team : teams) {
+				league.removeTeam(team, league.deltaIfRemove(team));
+			}
+			bestFit.insertAtBest(solution.getLeagues(), teams);
+			if (teams.isEmpty()) {
+				solution.commit();
+			} else {
+				solution.rollback();
+			}
+		}
+	}
+
 }
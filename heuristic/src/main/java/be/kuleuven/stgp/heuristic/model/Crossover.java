@@ -0,0 +1,114 @@
+package be.kuleuven.stgp.heuristic.model;
+
+import be.kuleuven.stgp.core.model.Problem;
+import be.kuleuven.stgp.core.model.Team;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * League-preserving crossover: the child inherits the cheapest leagues (by
+ * cost per team, slightly perturbed at random) of both parents, skipping the
+ * leagues that share a team with a league already inherited. New leagues are
+ * then grown greedily from the remaining teams (a random seed team plus the
+ * cheapest compatible remaining teams, up to minLeagueSize) and the teams
+ * still left are inserted with BestFit (see Constructive.complete()).
+ */
+public class Crossover {
+
+	public static MtSolution create(MtSolution first, MtSolution second, Random random) {
+		assert first.problem == second.problem;
+		Problem problem = first.problem;
+
+		// feasible leagues of both parents, sorted by (perturbed) cost per team
+		ArrayList<League> leagues = new ArrayList<>(first.size() + second.size());
+		for (MtSolution parent : Arrays.asList(first, second)) {
+			for (League league : parent.getLeagues()) {
+				if (!league.infeasible) {
+					leagues.add(league);
+				}
+			}
+		}
+		double keys[] = new double[leagues.size()];
+		Integer order[] = new Integer[leagues.size()];
+		for (int i = 0; i < leagues.size(); i++) {
+			League league = leagues.get(i);
+			keys[i] = league.getObjective() / league.teams.size() * (0.9 + 0.2 * random.nextDouble());
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> Double.compare(keys[a], keys[b]));
+
+		MtSolution child = new MtSolution(problem);
+		for (int i = 0; i < order.length; i++) {
+			League league = leagues.get(order[i]);
+			if (!isFree(child, league)) continue;
+
+			League copy = new League(child, league.teams.get(0));
+			for (int j = 1; j < league.teams.size(); j++) {
+				Team team = league.teams.get(j);
+				copy.addTeam(team, copy.deltaIfAdd(team));
+			}
+		}
+
+		ArrayList<Team> leftovers = new ArrayList<>();
+		for (Team team : problem.teams) {
+			if (child.getLeague(team) == null) {
+				leftovers.add(team);
+			}
+		}
+		buildLeagues(child, leftovers, random);
+		Constructive.complete(child, leftovers, new BestFit(problem, random), random);
+
+		assert child.debugSolution();
+		return child;
+	}
+
+	/**
+	 * Builds new leagues with the leftover teams; leagues that cannot reach
+	 * minLeagueSize teams are undone (their teams stay in leftovers).
+	 */
+	private static void buildLeagues(MtSolution child, ArrayList<Team> leftovers, Random random) {
+		Problem problem = child.problem;
+		Collections.shuffle(leftovers, random);
+
+		ArrayList<Team> failed = new ArrayList<>();
+		while (!leftovers.isEmpty()) {
+			League league = new League(child, leftovers.remove(leftovers.size() - 1));
+			while (league.teams.size() < problem.minLeagueSize) {
+				int best = -1;
+				double bestDelta = Double.MAX_VALUE;
+				for (int i = 0; i < leftovers.size(); i++) {
+					Team team = leftovers.get(i);
+					if (!league.canAddLevel(team) || !league.canAddTimeDist(team) || !league.canAddSameClub(team)) continue;
+					double delta = league.deltaIfAdd(team);
+					if (delta < bestDelta) {
+						best = i;
+						bestDelta = delta;
+					}
+				}
+				if (best < 0) break;
+				league.addTeam(leftovers.remove(best), bestDelta);
+			}
+
+			if (league.teams.size() < problem.minLeagueSize) {
+				// the league is undone and its teams are left for BestFit
+				failed.add(league.teams.get(0));
+				for (int i = league.teams.size() - 1; i >= 0; i--) {
+					Team team = league.teams.get(i);
+					if (i > 0) leftovers.add(team);
+					league.removeTeam(team, league.deltaIfRemove(team));
+				}
+			}
+		}
+		leftovers.addAll(failed);
+	}
+
+	private static boolean isFree(MtSolution child, League league) {
+		for (int i = 0; i < league.teams.size(); i++) {
+			if (child.getLeague(league.teams.get(i)) != null) return false;
+		}
+		return true;
+	}
+}
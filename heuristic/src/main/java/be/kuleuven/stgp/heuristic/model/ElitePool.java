@@ -0,0 +1,102 @@
+package be.kuleuven.stgp.heuristic.model;
+
+import be.kuleuven.stgp.core.model.Team;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pool of the best (at most capacity) distinct feasible solutions. The
+ * distance between two solutions is the number of pairs of teams that play in
+ * the same league in one solution but not in the other. A solution closer
+ * than minDistance to an elite solution can only replace it (if better);
+ * otherwise, it is added to the pool or replaces the worst elite solution (if
+ * better).
+ */
+public class ElitePool {
+
+	public final int capacity;
+	public final int minDistance;
+
+	private final ArrayList<MtSolution> elites = new ArrayList<>();
+
+	public ElitePool(int capacity, int minDistance) {
+		this.capacity = capacity;
+		this.minDistance = minDistance;
+	}
+
+	/**
+	 * Offers a solution to the pool; a copy of the solution is stored if it is
+	 * accepted.
+	 *
+	 * @param solution the solution
+	 * @return true if the solution entered the pool and false otherwise
+	 */
+	public boolean offer(MtSolution solution) {
+		if (!solution.isFeasible()) return false;
+
+		int closest = -1, worst = -1;
+		int closestDistance = Integer.MAX_VALUE;
+		for (int i = 0; i < elites.size(); i++) {
+			MtSolution elite = elites.get(i);
+			if (worst < 0 || elite.objective() > elites.get(worst).objective()) {
+				worst = i;
+			}
+			int distance = distance(solution, elite);
+			if (distance < closestDistance) {
+				closest = i;
+				closestDistance = distance;
+			}
+		}
+
+		int replaced;
+		if (closest >= 0 && closestDistance < minDistance) {
+			replaced = closest;
+		}
+		else if (elites.size() < capacity) {
+			elites.add(new MtSolution(solution));
+			return true;
+		}
+		else {
+			replaced = worst;
+		}
+		if (solution.objective() >= elites.get(replaced).objective()) return false;
+
+		elites.set(replaced, new MtSolution(solution));
+		return true;
+	}
+
+	/**
+	 * Gets the elite solutions, sorted by objective (the solutions must not be
+	 * modified).
+	 */
+	public List<MtSolution> getElites() {
+		ArrayList<MtSolution> sorted = new ArrayList<>(elites);
+		sorted.sort((a, b) -> Double.compare(a.objective(), b.objective()));
+		return sorted;
+	}
+
+	public int size() {
+		return elites.size();
+	}
+
+	/**
+	 * Computes the number of pairs of teams assigned to the same league in
+	 * exactly one of the solutions.
+	 */
+	public static int distance(MtSolution a, MtSolution b) {
+		int distance = 0;
+		for (Team team : a.problem.teams) {
+			League leagueA = a.getLeague(team), leagueB = b.getLeague(team);
+			int common = 0;
+			for (int i = 0; i < leagueA.teams.size(); i++) {
+				Team mate = leagueA.teams.get(i);
+				if (mate != team && b.getLeague(mate) == leagueB) {
+					common++;
+				}
+			}
+			distance += leagueA.teams.size() + leagueB.teams.size() - 2 - 2 * common;
+		}
+		return distance / 2;
+	}
+}
@@ -0,0 +1,102 @@
+package be.kuleuven.stgp.heuristic.model;
+
+import be.kuleuven.stgp.core.model.Team;
+
+import java.util.Arrays;
+
+/**
+ * Undo journal of the changes made to a MtSolution during a move: teams
+ * added to or removed from leagues and leagues created or destroyed, each one
+ * with its objective delta. Rolling back undoes the entries in reverse order,
+ * so the cost of a rejected move is proportional to the teams it touched.
+ */
+public class Journal {
+
+	private static final byte ADD = 0;
+	private static final byte REMOVE = 1;
+	private static final byte CREATE = 2;
+	private static final byte DESTROY = 3;
+
+	private byte types[] = new byte[64];
+	private League leagues[] = new League[64];
+	private Team teams[] = new Team[64];
+	private int indexes[] = new int[64];
+	private double deltas[] = new double[64];
+	private int size = 0;
+
+	public void clear() {
+		Arrays.fill(leagues, 0, size, null);
+		Arrays.fill(teams, 0, size, null);
+		size = 0;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/* recording --------------------------------------------------------------------------------------------------- */
+
+	void recordAdd(League league, Team team, double objectiveDelta) {
+		record(ADD, league, team, -1, objectiveDelta);
+	}
+
+	void recordRemove(League league, Team team, int index, double objectiveDelta) {
+		record(REMOVE, league, team, index, objectiveDelta);
+	}
+
+	void recordCreate(League league) {
+		record(CREATE, league, null, -1, 0);
+	}
+
+	void recordDestroy(League league, int index, double objectiveDelta) {
+		record(DESTROY, league, null, index, objectiveDelta);
+	}
+
+	private void record(byte type, League league, Team team, int index, double objectiveDelta) {
+		if (size == types.length) {
+			int capacity = size * 2;
+			types = Arrays.copyOf(types, capacity);
+			leagues = Arrays.copyOf(leagues, capacity);
+			teams = Arrays.copyOf(teams, capacity);
+			indexes = Arrays.copyOf(indexes, capacity);
+			deltas = Arrays.copyOf(deltas, capacity);
+		}
+		types[size] = type;
+		leagues[size] = league;
+		teams[size] = team;
+		indexes[size] = index;
+		deltas[size] = objectiveDelta;
+		size++;
+	}
+
+	/* rollback ---------------------------------------------------------------------------------------------------- */
+
+	/**
+	 * Undoes every recorded change (most recent first) and clears the journal.
+	 * The solution must not have been modified without recording.
+	 */
+	void rollback() {
+		for (int i = size - 1; i >= 0; i--) {
+			League league = leagues[i];
+			switch (types[i]) {
+				case ADD:
+					league.undoAdd(teams[i], deltas[i]);
+					break;
+				case REMOVE:
+					league.undoRemove(teams[i], indexes[i], deltas[i]);
+					break;
+				case CREATE:
+					league.undoCreate();
+					break;
+				case DESTROY:
+					league.undoDestroy(indexes[i], deltas[i]);
+					break;
+			}
+		}
+		clear();
+	}
+}
@@ -3,9 +3,20 @@ package be.kuleuven.stgp.heuristic.model;
 import be.kuleuven.stgp.core.model.Team;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * Created by Jan on 10-12-2015.
+ *
+ * Besides the list of teams, a league keeps (i) the number of teams of each
+ * club, (ii) a histogram of the teams' levels and (iii) the set of teams that
+ * are compatible (level, distance and time) with every team in the league,
+ * so that the checks done by BestFit for every candidate league take O(1).
+ * The cost between each team and the other teams of its league is kept by
+ * the solution (updated in O(league size) when a team joins or leaves), so
+ * that deltaIfRemove() takes O(1). If the solution keeps league costs (see
+ * MtSolution.enableLeagueCosts()), they are updated here as well, so that
+ * deltaIfAdd() takes O(1).
  */
 public class League {
 
@@ -16,22 +27,37 @@ public class League {
 	private double objective;
 	boolean infeasible;
 
+	/* positions in the leagues and infeasible leagues of the solution (-1 if absent) */
+	int slot = -1;
+	int infeasibleSlot = -1;
+
+	private final ClubCounter clubCounter;
+	private final int levelCounts[];
+	private int minPresentLevel, maxPresentLevel;
+	private final long compatibleTeams[];
+
 	public League(MtSolution solution, Team firstTeam) {
 		this.solution = solution;
 		this.teams = new ArrayList<>();
 		this.objective = 0;
+		this.clubCounter = new ClubCounter(solution.problem.maxLeagueSize);
+		this.levelCounts = new int[solution.getLevelRange()];
+		this.compatibleTeams = new long[(solution.problem.teams.length + 63) >>> 6];
 
+		// the league takes its slot first, since the league costs are indexed by slot
+		solution.addLeague(this);
 		teams.add(firstTeam);
-		maxLevel = firstTeam.level + solution.problem.maxLevelDiff;
-		minLevel = firstTeam.level - solution.problem.maxLevelDiff;
+		addToIndexes(firstTeam);
 		if (solution.problem.minLeagueSize <= 1) {
 			infeasible = false;
 		} else {
 			infeasible = true;
-			solution.incInfeasible();
+			solution.addInfeasible(this);
 		}
 
-		solution.getLeagues().add(this);
+		if (solution.isJournaling()) {
+			solution.getJournal().recordCreate(this);
+		}
 	}
 
 	League(MtSolution solution, League league) {
@@ -41,31 +67,38 @@ public class League {
 		this.teams = new ArrayList<>(league.teams);
 		this.objective = league.objective;
 		this.infeasible = league.infeasible;
+		this.clubCounter = new ClubCounter(league.clubCounter);
+		this.levelCounts = league.levelCounts.clone();
+		this.minPresentLevel = league.minPresentLevel;
+		this.maxPresentLevel = league.maxPresentLevel;
+		this.compatibleTeams = league.compatibleTeams.clone();
+	}
+
+	public double getObjective() {
+		return objective;
+	}
+
+	/**
+	 * Gets the position of the league in MtSolution.getLeagues() (-1 if the
+	 * league was removed from the solution).
+	 */
+	public int getSlot() {
+		return slot;
 	}
 
 	/* checkers ---------------------------------------------------------------------------------------------------- */
 
 	public boolean canAddSameClub(Team team) {
-		int nFromSameClub = 0;
-		for (int i = 0; i < teams.size(); i++) {
-			Team t = teams.get(i);
-			if (t.club == team.club) {
-				nFromSameClub++;
-				if (nFromSameClub >= solution.problem.maxTeamSameClub) {
-					return false;
-				}
-			}
-		}
-		return true;
+		return clubCounter.get(team.club.id) < solution.problem.maxTeamSameClub;
 	}
 
+	/**
+	 * Checks the travel time and distance between the team and every team in
+	 * the league (note that the level difference is also checked, since the
+	 * problem's compatibility bitmatrix is used).
+	 */
 	public boolean canAddTimeDist(Team team) {
-		for (int i = 0; i < teams.size(); i++) {
-			Team t = teams.get(i);
-			if (team.getTravelTimeTo(t) > solution.problem.maxTravelTime) return false;
-			if (team.getTravelDistTo(t) > solution.problem.maxTravelDist) return false;
-		}
-		return true;
+		return (compatibleTeams[team.id >>> 6] & (1L << team.id)) != 0;
 	}
 
 	public boolean canAddLevel(Team team) {
@@ -82,76 +115,186 @@ public class League {
 		return solution.problem.minLeagueSize <= teams.size() - n;
 	}
 
+	/**
+	 * Computes the objective delta if the team is added to the league, from
+	 * the league costs if the solution keeps them (otherwise, the weighted
+	 * time and distance of each pair are read at once).
+	 */
 	public double deltaIfAdd(Team team) {
-		int timeDelta = 0;
-		int distDelta = 0;
+		if (solution.hasLeagueCosts()) {
+			assert solution.getLeague(team) != this;
+			return solution.getLeagueCosts(team)[slot];
+		}
+		int costDelta = 0;
 		for (int i = 0; i < teams.size(); i++) {
-			Team t = teams.get(i);
-			timeDelta += team.getTravelTimeTo(t);
-			distDelta += team.getTravelDistTo(t);
+			costDelta += team.getWeightedDistTimeTo(teams.get(i));
 		}
-		return solution.toObjectiveDelta(timeDelta, distDelta);
+		return 2 * costDelta;
 	}
 
+	/**
+	 * Gets the objective delta if the team (of this league) is removed, from
+	 * the cost sums kept by the solution.
+	 */
 	public double deltaIfRemove(Team team) {
-		int timeDelta = 0;
-		int distDelta = 0;
-		for (int i = 0; i < teams.size(); i++) {
-			Team t = teams.get(i);
-			if (t != team) {
-				timeDelta -= team.getTravelTimeTo(t);
-				distDelta -= team.getTravelDistTo(t);
-			}
-		}
-		return solution.toObjectiveDelta(timeDelta, distDelta);
+		assert solution.getLeague(team) == this;
+		return -solution.teamCosts[team.id];
 	}
 
 	/* manipulate -------------------------------------------------------------------------------------------------- */
 
 	public void addTeam(Team team, double objectiveDelta) {
 		assert teams.size() > 0;
-		int newMaxLevel = team.level + solution.problem.maxLevelDiff;
-		int newMinLevel = team.level - solution.problem.maxLevelDiff;
-		maxLevel = Math.min(maxLevel, newMaxLevel);
-		minLevel = Math.max(minLevel, newMinLevel);
 		teams.add(team);
+		addToIndexes(team);
 		solution.addObjective(objectiveDelta);
 		objective += objectiveDelta;
 		assert teams.size() <= solution.problem.maxLeagueSize;
 		checkInfeasibleSize();
+		if (solution.isJournaling()) {
+			solution.getJournal().recordAdd(this, team, objectiveDelta);
+		}
 	}
 
 	public void removeTeam(Team team, double objectiveDelta) {
-		teams.remove(team);
+		int index = teams.indexOf(team);
+		teams.remove(index);
+		removeFromIndexes(team);
 		solution.addObjective(objectiveDelta);
+		objective += objectiveDelta;
 
-		// levels
-		int minPresentLevel = Integer.MAX_VALUE;
-		int maxPresentLevel = Integer.MIN_VALUE;
+		checkInfeasibleSize();
 
+		if (solution.isJournaling()) {
+			solution.getJournal().recordRemove(this, team, index, objectiveDelta);
+		}
+
+		if (teams.size() == 0) {
+			removeFromSolution();
+		}
+	}
+
+	private void removeFromSolution() {
+		int index = solution.removeLeague(this);
+		solution.addObjective(-objective);
+		if (infeasible) {
+			solution.removeInfeasible(this);
+		}
+		if (solution.isJournaling()) {
+			solution.getJournal().recordDestroy(this, index, -objective);
+		}
+	}
+
+	/* indexes: club counters, level histogram, compatible teams and team leagues --------------------------------- */
+
+	private void addToIndexes(Team team) {
+		solution.setLeague(team, this);
+		clubCounter.increment(team.club.id);
+
+		int level = team.level - solution.getMinTeamLevel();
+		if (teams.size() == 1) {
+			minPresentLevel = maxPresentLevel = level;
+		} else {
+			minPresentLevel = Math.min(minPresentLevel, level);
+			maxPresentLevel = Math.max(maxPresentLevel, level);
+		}
+		levelCounts[level]++;
+		updateLevelBounds();
+
+		long row[] = solution.problem.getCompatibleRow(team.id);
+		if (teams.size() == 1) {
+			System.arraycopy(row, 0, compatibleTeams, 0, row.length);
+		} else {
+			for (int w = 0; w < row.length; w++) {
+				compatibleTeams[w] &= row[w];
+			}
+		}
+
+		double costs[] = solution.teamCosts;
+		double cost = 0;
 		for (int i = 0; i < teams.size(); i++) {
 			Team t = teams.get(i);
-			minPresentLevel = Math.min(minPresentLevel, t.level);
-			maxPresentLevel = Math.max(maxPresentLevel, t.level);
+			if (t != team) {
+				costs[t.id] += 2 * t.getWeightedDistTimeTo(team);
+				cost += 2 * team.getWeightedDistTimeTo(t);
+			}
 		}
+		costs[team.id] = cost;
+		solution.updateLeagueCosts(team, slot, 2);
+	}
 
-		objective += objectiveDelta;
+	private void removeFromIndexes(Team team) {
+		solution.setLeague(team, null);
+		clubCounter.decrement(team.club.id);
+
+		int level = team.level - solution.getMinTeamLevel();
+		if (--levelCounts[level] == 0 && !teams.isEmpty()) {
+			while (levelCounts[minPresentLevel] == 0) minPresentLevel++;
+			while (levelCounts[maxPresentLevel] == 0) maxPresentLevel--;
+		}
+		updateLevelBounds();
+
+		double costs[] = solution.teamCosts;
+		for (int i = 0; i < teams.size(); i++) {
+			Team t = teams.get(i);
+			costs[t.id] -= 2 * t.getWeightedDistTimeTo(team);
+		}
+		costs[team.id] = 0;
+		solution.updateLeagueCosts(team, slot, -2);
+
+		// the intersection is rebuilt from the remaining teams
+		if (teams.isEmpty()) {
+			Arrays.fill(compatibleTeams, 0);
+		} else {
+			long row[] = solution.problem.getCompatibleRow(teams.get(0).id);
+			System.arraycopy(row, 0, compatibleTeams, 0, row.length);
+			for (int i = 1; i < teams.size(); i++) {
+				row = solution.problem.getCompatibleRow(teams.get(i).id);
+				for (int w = 0; w < row.length; w++) {
+					compatibleTeams[w] &= row[w];
+				}
+			}
+		}
+	}
+
+	private void updateLevelBounds() {
+		if (teams.isEmpty()) return;
+		minLevel = maxPresentLevel + solution.getMinTeamLevel() - solution.problem.maxLevelDiff;
+		maxLevel = minPresentLevel + solution.getMinTeamLevel() + solution.problem.maxLevelDiff;
+	}
 
-		minLevel = maxPresentLevel - solution.problem.maxLevelDiff;
-		maxLevel = minPresentLevel + solution.problem.maxLevelDiff;
+	/* undo (see Journal) ------------------------------------------------------------------------------------------ */
 
+	void undoAdd(Team team, double objectiveDelta) {
+		assert teams.get(teams.size() - 1) == team;
+		teams.remove(teams.size() - 1);
+		removeFromIndexes(team);
+		solution.addObjective(-objectiveDelta);
+		objective -= objectiveDelta;
 		checkInfeasibleSize();
+	}
 
-		if (teams.size() == 0) {
-			removeFromSolution();
+	void undoRemove(Team team, int index, double objectiveDelta) {
+		teams.add(index, team);
+		addToIndexes(team);
+		solution.addObjective(-objectiveDelta);
+		objective -= objectiveDelta;
+		checkInfeasibleSize();
+	}
+
+	void undoCreate() {
+		assert slot == solution.getLeagues().size() - 1 && teams.size() == 1;
+		solution.removeLeague(this);
+		if (infeasible) {
+			solution.removeInfeasible(this);
 		}
 	}
 
-	private void removeFromSolution() {
-		solution.addObjective(-objective);
-		solution.getLeagues().remove(this);
+	void undoDestroy(int index, double objectiveDelta) {
+		solution.restoreLeague(this, index);
+		solution.addObjective(-objectiveDelta);
 		if (infeasible) {
-			solution.decInfeasible();
+			solution.addInfeasible(this);
 		}
 	}
 
@@ -160,9 +303,9 @@ public class League {
 		if (newInfeasible != infeasible) {
 			infeasible = newInfeasible;
 			if (infeasible) {
-				solution.incInfeasible();
+				solution.addInfeasible(this);
 			} else {
-				solution.decInfeasible();
+				solution.removeInfeasible(this);
 			}
 		}
 	}
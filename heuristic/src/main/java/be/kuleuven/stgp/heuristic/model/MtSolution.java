@@ -5,6 +5,7 @@ import be.kuleuven.stgp.core.model.Team;
 import be.kuleuven.stgp.core.model.solution.Solution;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 
 /**
@@ -15,24 +16,54 @@ public class MtSolution {
 	public final Problem problem;
 
 	private final ArrayList<League> leagues;
+	private final ArrayList<League> infeasibleLeagues;
+	private final League teamLeagues[];
+	final double teamCosts[];		// cost between each team and the other teams of its league (see League)
+	private double leagueCosts[][];	// [team][league slot]: cost between the team and the league's teams (or null)
+	private final Journal journal = new Journal();
 	private double objective;
-	private int nInfeasible;
+	private boolean journaling = false;
+
+	/* range of the teams' levels (for the level histograms of the leagues) */
+	private final int minTeamLevel;
+	private final int levelRange;
 
 	MtSolution(Problem problem) {
 		this.problem = problem;
 		this.objective = 0;
-		this.nInfeasible = 0;
 		leagues = new ArrayList<>();
+		infeasibleLeagues = new ArrayList<>();
+		teamLeagues = new League[problem.teams.length];
+		teamCosts = new double[problem.teams.length];
+
+		int minLevel = Integer.MAX_VALUE, maxLevel = Integer.MIN_VALUE;
+		for (Team team : problem.teams) {
+			minLevel = Math.min(minLevel, team.level);
+			maxLevel = Math.max(maxLevel, team.level);
+		}
+		this.minTeamLevel = minLevel;
+		this.levelRange = Math.max(1, maxLevel - minLevel + 1);
 	}
 
 	public MtSolution(MtSolution solution) {
 		assert solution.debugSolution();
 		this.problem = solution.problem;
 		this.objective = solution.objective;
-		this.nInfeasible = solution.nInfeasible;
-		this.leagues = new ArrayList<>();
+		this.minTeamLevel = solution.minTeamLevel;
+		this.levelRange = solution.levelRange;
+		this.leagues = new ArrayList<>(solution.leagues.size());
+		this.infeasibleLeagues = new ArrayList<>(solution.infeasibleLeagues.size());
+		this.teamLeagues = new League[problem.teams.length];
+		this.teamCosts = solution.teamCosts.clone();
 		for (int j = 0; j < solution.leagues.size(); j++) {
-			this.leagues.add(new League(this, solution.leagues.get(j)));
+			League league = new League(this, solution.leagues.get(j));
+			addLeague(league);
+			for (int i = 0; i < league.teams.size(); i++) {
+				teamLeagues[league.teams.get(i).id] = league;
+			}
+			if (league.infeasible) {
+				addInfeasible(league);
+			}
 		}
 		assert debugSolution();
 	}
@@ -46,28 +77,225 @@ public class MtSolution {
 		return leagues.size();
 	}
 
+	int getMinTeamLevel() {
+		return minTeamLevel;
+	}
+
+	int getLevelRange() {
+		return levelRange;
+	}
+
+	/* journal ----------------------------------------------------------------------------------------------------- */
+
+	/**
+	 * Starts recording the changes made to this solution, so that they can be
+	 * either kept (commit) or undone (rollback).
+	 */
+	public void begin() {
+		journal.clear();
+		journaling = true;
+	}
+
+	/**
+	 * Keeps the changes made since begin() and stops recording.
+	 */
+	public void commit() {
+		journal.clear();
+		journaling = false;
+	}
+
+	/**
+	 * Undoes the changes made since begin() and stops recording.
+	 */
+	public void rollback() {
+		journaling = false;
+		journal.rollback();
+		assert debugSolution();
+	}
+
+	Journal getJournal() {
+		return journal;
+	}
+
+	boolean isJournaling() {
+		return journaling;
+	}
+
+	/**
+	 * Gets the leagues of the solution. The list must not be structurally
+	 * modified (leagues know their position in it); use swapLeagues() to
+	 * reorder it.
+	 */
 	public ArrayList<League> getLeagues() {
 		return leagues;
 	}
 
+	/**
+	 * Gets the league a team is assigned to.
+	 *
+	 * @param team the team
+	 * @return the league of the team (or null if the team is not assigned)
+	 */
+	public League getLeague(Team team) {
+		return teamLeagues[team.id];
+	}
+
+	/**
+	 * Gets the cost (in objective units) between the team and the other teams
+	 * of its league, i.e. the objective decrease if the team is removed.
+	 */
+	public double getTeamCost(Team team) {
+		return teamCosts[team.id];
+	}
+
+	/**
+	 * Starts keeping, for every team and league, the cost between the team
+	 * and the teams of the league (except itself), so that League.deltaIfAdd()
+	 * takes O(1). Adding or removing a team then takes O(n) instead of
+	 * O(league size), which pays off when most (team, league) pairs are
+	 * evaluated between moves, as in the tabu search, but not in ruin and
+	 * recreate. Copies of the solution do not keep league costs.
+	 */
+	public void enableLeagueCosts() {
+		if (leagueCosts != null) return;
+		Team allTeams[] = problem.teams;
+		leagueCosts = new double[allTeams.length][Math.max(16, 2 * leagues.size())];
+		for (int l = 0; l < leagues.size(); l++) {
+			League league = leagues.get(l);
+			for (Team team : allTeams) {
+				double cost = 0;
+				for (int i = 0; i < league.teams.size(); i++) {
+					Team other = league.teams.get(i);
+					if (other != team) {
+						cost += 2 * team.getWeightedDistTimeTo(other);
+					}
+				}
+				leagueCosts[team.id][l] = cost;
+			}
+		}
+	}
+
+	public boolean hasLeagueCosts() {
+		return leagueCosts != null;
+	}
+
+	/**
+	 * Gets the costs between the team and the teams of each league, indexed
+	 * by the leagues' slots (see enableLeagueCosts()). The array must not be
+	 * modified, and it is only valid until a league is added.
+	 */
+	public double[] getLeagueCosts(Team team) {
+		return leagueCosts[team.id];
+	}
+
+	/* updates the costs to the league at the slot when the team joins (factor 2) or leaves (factor -2) it */
+	void updateLeagueCosts(Team team, int slot, int factor) {
+		if (leagueCosts == null) return;
+		for (Team t : problem.teams) {
+			if (t != team) {
+				leagueCosts[t.id][slot] += factor * t.getWeightedDistTimeTo(team);
+			}
+		}
+	}
+
+	/* copies the league costs of slot i to slot j and clears slot i */
+	private void moveLeagueCosts(int i, int j) {
+		if (leagueCosts == null) return;
+		for (double costs[] : leagueCosts) {
+			costs[j] = costs[i];
+			costs[i] = 0;
+		}
+	}
+
+	private void ensureLeagueCostsCapacity(int nLeagues) {
+		if (leagueCosts == null || leagueCosts[0].length >= nLeagues) return;
+		int capacity = Math.max(nLeagues, 2 * leagueCosts[0].length);
+		for (int t = 0; t < leagueCosts.length; t++) {
+			leagueCosts[t] = Arrays.copyOf(leagueCosts[t], capacity);
+		}
+	}
+
+	void setLeague(Team team, League league) {
+		teamLeagues[team.id] = league;
+	}
+
+	public void swapLeagues(int i, int j) {
+		League leagueI = leagues.get(i);
+		League leagueJ = leagues.get(j);
+		leagues.set(i, leagueJ);
+		leagues.set(j, leagueI);
+		leagueJ.slot = i;
+		leagueI.slot = j;
+		if (leagueCosts != null) {
+			for (double costs[] : leagueCosts) {
+				double cost = costs[i];
+				costs[i] = costs[j];
+				costs[j] = cost;
+			}
+		}
+	}
+
+	/* leagues are appended and removed by swapping with the last one, in O(1) (plus O(n) to move the league
+	 * costs, if kept; the costs of a removed league are cleared) */
+
+	void addLeague(League league) {
+		league.slot = leagues.size();
+		leagues.add(league);
+		ensureLeagueCostsCapacity(leagues.size());
+	}
+
+	int removeLeague(League league) {
+		int slot = league.slot;
+		League last = leagues.remove(leagues.size() - 1);
+		if (last != league) {
+			leagues.set(slot, last);
+			last.slot = slot;
+		}
+		moveLeagueCosts(leagues.size(), slot);
+		league.slot = -1;
+		return slot;
+	}
+
+	void restoreLeague(League league, int slot) {
+		// inverse of removeLeague: the league at the slot goes back to the end
+		ensureLeagueCostsCapacity(leagues.size() + 1);
+		if (slot < leagues.size()) {
+			League moved = leagues.get(slot);
+			moved.slot = leagues.size();
+			leagues.add(moved);
+			leagues.set(slot, league);
+			moveLeagueCosts(slot, moved.slot);
+		} else {
+			leagues.add(league);
+		}
+		league.slot = slot;
+	}
+
 	void addObjective(double delta) {
 		objective += delta;
 	}
 
-	void incInfeasible() {
-		nInfeasible++;
+	void addInfeasible(League league) {
+		league.infeasibleSlot = infeasibleLeagues.size();
+		infeasibleLeagues.add(league);
 	}
 
-	void decInfeasible() {
-		nInfeasible--;
+	void removeInfeasible(League league) {
+		int slot = league.infeasibleSlot;
+		League last = infeasibleLeagues.remove(infeasibleLeagues.size() - 1);
+		if (last != league) {
+			infeasibleLeagues.set(slot, last);
+			last.infeasibleSlot = slot;
+		}
+		league.infeasibleSlot = -1;
 	}
 
 	public int nInfeasible() {
-		return nInfeasible;
+		return infeasibleLeagues.size();
 	}
 
 	public boolean isFeasible() {
-		return nInfeasible == 0;
+		return infeasibleLeagues.isEmpty();
 	}
 
 	double toObjectiveDelta(int time, int distance) {
@@ -88,25 +316,18 @@ public class MtSolution {
 			}
 			solution.addLeague(l);
 		}
-
-		solution.validate();
-
 		return solution;
 	}
 
+	/**
+	 * Gets the infeasible leagues of the solution, kept up to date as teams are
+	 * added and removed (the list must not be modified).
+	 */
 	public ArrayList<League> getInfeasibleLeagues() {
-		ArrayList<League> infLeagues = new ArrayList<>();
-		for (int i = 0; i < leagues.size(); i++) {
-			League l = leagues.get(i);
-			if (l.infeasible) {
-				infLeagues.add(l);
-			}
-		}
-		return infLeagues;
+		return infeasibleLeagues;
 	}
 
 	public boolean debugSolution() {
-		int infCount = 0;
 		HashSet<Team> teamSet = new HashSet<>();
 		for (int i = 0; i < leagues.size(); i++) {
 			League league = leagues.get(i);
@@ -116,23 +337,48 @@ public class MtSolution {
 					System.err.print("duplicate teams");
 					return false;
 				}
+				if (teamLeagues[team.id] != league) {
+					System.err.println("team " + team.id + " is not indexed in its league");
+					return false;
+				}
+				double cost = 0;
+				for (int k = 0; k < league.teams.size(); k++) {
+					Team other = league.teams.get(k);
+					if (other != team) {
+						cost += toObjectiveDelta(team.getTravelTimeTo(other), team.getTravelDistTo(other));
+					}
+				}
+				if (cost != teamCosts[team.id]) {
+					System.err.println("team " + team.id + " has cost " + teamCosts[team.id] + " should be: " + cost);
+					return false;
+				}
 				teamSet.add(team);
 			}
-			if (league.infeasible) {
-				infCount++;
+			if (leagueCosts != null) {
+				for (Team team : problem.teams) {
+					double cost = 0;
+					for (int k = 0; k < league.teams.size(); k++) {
+						Team other = league.teams.get(k);
+						if (other != team) {
+							cost += toObjectiveDelta(team.getTravelTimeTo(other), team.getTravelDistTo(other));
+						}
+					}
+					if (cost != leagueCosts[team.id][i]) {
+						System.err.println("team " + team.id + " has cost " + leagueCosts[team.id][i] + " to league " + i + " should be: " + cost);
+						return false;
+					}
+				}
+			}
+			if (league.slot != i) {
+				System.err.println("league at position " + i + " has slot " + league.slot);
+				return false;
 			}
 		}
 		if (teamSet.size() != problem.teams.length) {
 			System.err.println("teams in solution: " + teamSet.size() + " should be: " + problem.teams.length);
 			return false;
 		}
-		if (infCount != nInfeasible) {
-			System.err.println("infeasible leagues in solution: " + nInfeasible + " should be: " + infCount);
-			System.err.println(this);
-			return false;
-		}
-
-		return true;
+		return debugInfeasibility();
 	}
 
 	public boolean debugInfeasibility() {
@@ -143,11 +389,18 @@ public class MtSolution {
 				infCount++;
 			}
 		}
-		if (infCount != nInfeasible) {
-			System.err.println("infeasible leagues in solution: " + nInfeasible + " should be: " + infCount);
+		if (infCount != infeasibleLeagues.size()) {
+			System.err.println("infeasible leagues in solution: " + infeasibleLeagues.size() + " should be: " + infCount);
 			System.err.println(this);
 			return false;
 		}
+		for (int i = 0; i < infeasibleLeagues.size(); i++) {
+			League league = infeasibleLeagues.get(i);
+			if (!league.infeasible || league.infeasibleSlot != i || leagues.get(league.slot) != league) {
+				System.err.println("infeasible league at position " + i + " is not indexed correctly");
+				return false;
+			}
+		}
 		return true;
 	}
 
@@ -155,7 +408,7 @@ public class MtSolution {
 		StringBuilder sb = new StringBuilder();
 		sb.append("Solution[");
 		sb.append("obj=").append((int) objective);
-		sb.append(", inf=").append(nInfeasible);
+		sb.append(", inf=").append(infeasibleLeagues.size());
 		sb.append(", leagues=").append(leagues.size());
 		sb.append("]");
 		return sb.toString();
@@ -0,0 +1,95 @@
+package be.kuleuven.stgp.heuristic.model;
+
+import be.kuleuven.stgp.core.model.Team;
+
+/**
+ * Path relinking between two solutions: starting from (a copy of) the
+ * initiating solution, teams are relocated one at a time until the solution
+ * has the same leagues as the guiding solution. Each step performs, among the
+ * feasible relocations that bring the solution closer to the guiding one (see
+ * ElitePool.distance()), the one with the smallest objective delta. A team is
+ * only relocated to a league containing one of its mates in the guiding
+ * solution, so the walk reaches the guiding solution or stops when no such
+ * relocation is feasible. The best feasible intermediate solution of the
+ * middle half of the path is kept (the solutions close to the ends are
+ * usually their own neighbours), to be improved by local search.
+ */
+public class PathRelinking {
+
+	/**
+	 * Walks from the initiating solution towards the guiding solution.
+	 *
+	 * @param initiating the initiating solution (not modified)
+	 * @param guiding    the guiding solution
+	 * @param deadline   the time (in milliseconds) at which the walk stops
+	 * @return the best feasible intermediate solution (or null if there is
+	 * none in the middle half of the path)
+	 */
+	public static MtSolution relink(MtSolution initiating, MtSolution guiding, long deadline) {
+		MtSolution current = new MtSolution(initiating);
+		MtSolution best = null;
+
+		// the distance to the guiding solution is updated at each step
+		int totalDistance = ElitePool.distance(initiating, guiding);
+		int distance = totalDistance;
+
+		while (System.currentTimeMillis() < deadline) {
+			Team bestTeam = null;
+			League bestTarget = null;
+			double bestDelta = Double.MAX_VALUE;
+			int bestDistanceDelta = 0;
+
+			for (Team team : current.problem.teams) {
+				League source = current.getLeague(team);
+				League guide = guiding.getLeague(team);
+
+				for (int i = 0; i < guide.teams.size(); i++) {
+					League target = current.getLeague(guide.teams.get(i));
+					if (target == source) continue;
+					if (!target.canAddSize(1) || !target.canAddLevel(team) || !target.canAddTimeDist(team) || !target.canAddSameClub(team)) continue;
+					int distanceDelta = distanceDelta(current, guiding, team, source, target);
+					if (distanceDelta >= 0) continue;
+
+					double delta = target.deltaIfAdd(team) + source.deltaIfRemove(team);
+					if (delta < bestDelta) {
+						bestTeam = team;
+						bestTarget = target;
+						bestDelta = delta;
+						bestDistanceDelta = distanceDelta;
+					}
+				}
+			}
+			if (bestTeam == null) break;
+
+			League source = current.getLeague(bestTeam);
+			source.removeTeam(bestTeam, source.deltaIfRemove(bestTeam));
+			bestTarget.addTeam(bestTeam, bestTarget.deltaIfAdd(bestTeam));
+			distance += bestDistanceDelta;
+
+			boolean middle = 4 * distance >= totalDistance && 4 * distance <= 3 * totalDistance;
+			if (middle && current.isFeasible() && (best == null || current.objective() < best.objective())) {
+				best = new MtSolution(current);
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Computes the change in the distance to the guiding solution if the team
+	 * is moved from source to target.
+	 */
+	private static int distanceDelta(MtSolution current, MtSolution guiding, Team team, League source, League target) {
+		League guide = guiding.getLeague(team);
+		int delta = 0;
+		for (int i = 0; i < source.teams.size(); i++) {
+			Team mate = source.teams.get(i);
+			if (mate != team) {
+				delta += guiding.getLeague(mate) == guide ? 1 : -1;
+			}
+		}
+		for (int i = 0; i < target.teams.size(); i++) {
+			delta += guiding.getLeague(target.teams.get(i)) == guide ? -1 : 1;
+		}
+		return delta;
+	}
+}
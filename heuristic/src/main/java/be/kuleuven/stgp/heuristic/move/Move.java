@@ -21,6 +21,30 @@ public abstract class Move {
 		this.BESTFIT = new BestFit(problem, random);
 	}
 
-	public abstract MtSolution getNeighbour(MtSolution solution);
+	/**
+	 * Applies the move in place. If the move cannot be completed, false is
+	 * returned and the solution is left partially modified, so the caller
+	 * must undo the changes (see MtSolution.begin() and rollback()).
+	 *
+	 * @param solution the solution to modify
+	 * @return true if the move was applied and false otherwise
+	 */
+	public abstract boolean apply(MtSolution solution);
+
+	/**
+	 * Notifies the move of the outcome of its last application, so that
+	 * adaptive moves can update their statistics (nothing is done by default).
+	 *
+	 * @param accepted whether the modified solution was accepted
+	 * @param improved whether the modified solution improved the current one
+	 * @param newBest  whether the modified solution is a new best solution
+	 */
+	public void update(boolean accepted, boolean improved, boolean newBest) {
+	}
+
+	public MtSolution getNeighbour(MtSolution solution) {
+		MtSolution neighbour = new MtSolution(solution);
+		return apply(neighbour) ? neighbour : solution;
+	}
 
 }
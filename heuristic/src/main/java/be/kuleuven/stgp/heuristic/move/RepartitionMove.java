@@ -0,0 +1,352 @@
+package be.kuleuven.stgp.heuristic.move;
+
+import be.kuleuven.stgp.core.model.Problem;
+import be.kuleuven.stgp.core.model.Team;
+import be.kuleuven.stgp.core.util.KdTree;
+import be.kuleuven.stgp.heuristic.model.League;
+import be.kuleuven.stgp.heuristic.model.MtSolution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Exact repartitioning of a few neighbouring leagues: a random feasible league
+ * and up to MAX_LEAGUES - 1 feasible leagues of the clubs closest to one of its
+ * teams (with a team compatible with it) are emptied, and their teams are
+ * redistributed into the same number of leagues by a depth-first branch and
+ * bound, subject to the size, club, level and travel constraints.
+ * <p>
+ * The search branches on the team with the fewest feasible leagues (the
+ * leagues are tried by increasing cost of adding the team, and only the first
+ * empty league is tried) and the bound adds, for each unassigned team, the
+ * cheapest cost of adding it to a league plus half the cost of its cheapest
+ * compatible mates still needed to reach the minimum size (the other half is
+ * counted by the mates themselves). The search stops after NODE_LIMIT
+ * nodes; the best partition found is then used, so the result is optimal
+ * only if the search is complete (see getStatistics()).
+ * <p>
+ * The move is only applied if it improves the solution, and apply() returns
+ * false otherwise, so it can be applied to the current solution of the
+ * annealing at any time.
+ */
+public class RepartitionMove extends Move {
+
+	public static final int MAX_LEAGUES = 4;
+	public static final int MAX_TEAMS = 64;			// the teams of the subproblem are represented by the bits of a long
+	public static final int NODE_LIMIT = 20_000;
+	public static final int NEAREST_CLUBS = 30;
+
+	private static final double EPS = 1e-6;
+
+	private final KdTree clubIndex;
+
+	/* subproblem: teams, (symmetric) pair costs, compatibility bits and clubs */
+	private int n, m;
+	private final Team teams[] = new Team[MAX_TEAMS];
+	private final double cost[][] = new double[MAX_TEAMS][MAX_TEAMS];
+	private final long compatible[] = new long[MAX_TEAMS];
+	private final int clubs[] = new int[MAX_TEAMS];
+	private final double cheapestMates[][] = new double[MAX_TEAMS][];	// [i][k]: half the k cheapest costs of team i
+	private final ArrayList<League> leagues = new ArrayList<>();
+
+	/* search state */
+	private final int assignment[] = new int[MAX_TEAMS];
+	private final int bestAssignment[] = new int[MAX_TEAMS];
+	private final double addCost[][] = new double[MAX_TEAMS][MAX_LEAGUES];
+	private final int sizes[] = new int[MAX_LEAGUES];
+	private final long candidates[] = new long[MAX_LEAGUES];
+	private final int clubCounts[][] = new int[MAX_LEAGUES][MAX_TEAMS];
+	private double bestCost;
+	private int nodes;
+
+	/* statistics */
+	private long nCalls, nImproved, nComplete, nNodes;
+
+	public RepartitionMove(Problem problem, Random random) {
+		super(problem, random);
+		this.clubIndex = problem.getClubIndex();
+	}
+
+	@Override
+	public boolean apply(MtSolution solution) {
+		if (!selectLeagues(solution)) return false;
+		nCalls++;
+
+		buildSubproblem();
+
+		// the current partition is the initial upper bound
+		double currentCost = 0;
+		for (int i = 0; i < n; i++) {
+			for (int j = i + 1; j < n; j++) {
+				if (solution.getLeague(teams[i]) == solution.getLeague(teams[j])) {
+					currentCost += cost[i][j];
+				}
+			}
+		}
+		bestCost = currentCost - EPS;
+		bestAssignment[0] = -1;
+		nodes = 0;
+
+		Arrays.fill(assignment, 0, n, -1);
+		Arrays.fill(sizes, 0, m, 0);
+		for (int i = 0; i < n; i++) {
+			Arrays.fill(addCost[i], 0, m, 0);
+		}
+		search(0, 0, 0);
+
+		nNodes += nodes;
+		if (nodes <= NODE_LIMIT) nComplete++;
+		if (bestAssignment[0] < 0) return false;
+
+		double oldObjective = solution.objective();
+		rebuild(solution);
+		if (solution.objective() > oldObjective - EPS) return false;
+
+		nImproved++;
+		return true;
+	}
+
+	/**
+	 * Selects a random feasible league and the feasible leagues of the clubs
+	 * closest to one of its teams; returns false if less than two leagues are
+	 * selected.
+	 */
+	private boolean selectLeagues(MtSolution solution) {
+		leagues.clear();
+		ArrayList<League> all = solution.getLeagues();
+		League seed = all.get(RANDOM.nextInt(all.size()));
+		if (seed.teams.size() < PROBLEM.minLeagueSize || seed.teams.size() > PROBLEM.maxLeagueSize) return false;
+
+		int nLeagues = 2 + RANDOM.nextInt(MAX_LEAGUES - 1);
+		int nTeams = seed.teams.size();
+		leagues.add(seed);
+
+		Team team = seed.teams.get(RANDOM.nextInt(seed.teams.size()));
+		int nearestClubs[] = clubIndex.nearest(PROBLEM.getClubX(team.club), PROBLEM.getClubY(team.club), Math.min(NEAREST_CLUBS, PROBLEM.clubs.length));
+		for (int c = 0; c < nearestClubs.length && leagues.size() < nLeagues; c++) {
+			for (Team other : PROBLEM.clubs[nearestClubs[c]].teams) {
+				League league = solution.getLeague(other);
+				if (league == null || leagues.contains(league)) continue;
+				if (league.teams.size() < PROBLEM.minLeagueSize || league.teams.size() > PROBLEM.maxLeagueSize) continue;
+				if (nTeams + league.teams.size() > MAX_TEAMS || !hasCompatible(league, team)) continue;
+
+				leagues.add(league);
+				nTeams += league.teams.size();
+				if (leagues.size() == nLeagues) break;
+			}
+		}
+		return leagues.size() >= 2;
+	}
+
+	private static boolean hasCompatible(League league, Team team) {
+		for (int i = 0; i < league.teams.size(); i++) {
+			if (league.teams.get(i).isCompatible(team)) return true;
+		}
+		return false;
+	}
+
+	private void buildSubproblem() {
+		m = leagues.size();
+		n = 0;
+		for (League league : leagues) {
+			for (int i = 0; i < league.teams.size(); i++) {
+				teams[n++] = league.teams.get(i);
+			}
+		}
+
+		int nClubs = 0;
+		for (int i = 0; i < n; i++) {
+			compatible[i] = 0;
+			clubs[i] = nClubs;
+			for (int j = 0; j < i; j++) {
+				if (teams[j].club == teams[i].club) {
+					clubs[i] = clubs[j];
+					break;
+				}
+			}
+			if (clubs[i] == nClubs) nClubs++;
+
+			for (int j = 0; j < n; j++) {
+				if (j != i && teams[i].isCompatible(teams[j])) {
+					compatible[i] |= 1L << j;
+				}
+				if (j > i) {
+					cost[i][j] = cost[j][i] = teams[i].getPairCost(teams[j]);
+				}
+			}
+		}
+		for (int l = 0; l < m; l++) {
+			Arrays.fill(clubCounts[l], 0, nClubs, 0);
+		}
+
+		double costs[] = new double[n];
+		for (int i = 0; i < n; i++) {
+			int k = 0;
+			for (int j = 0; j < n; j++) {
+				if ((compatible[i] & (1L << j)) != 0) {
+					costs[k++] = cost[i][j];
+				}
+			}
+			Arrays.sort(costs, 0, k);
+
+			if (cheapestMates[i] == null) {
+				cheapestMates[i] = new double[PROBLEM.minLeagueSize];
+			}
+			for (int j = 1; j < PROBLEM.minLeagueSize; j++) {
+				cheapestMates[i][j] = j <= k ? cheapestMates[i][j - 1] + costs[j - 1] / 2 : Double.MAX_VALUE;
+			}
+		}
+	}
+
+	/* branch and bound -------------------------------------------------------------------------------------------- */
+
+	private void search(int nAssigned, double currentCost, int nOpen) {
+		if (++nodes > NODE_LIMIT) return;
+
+		// every league must still be able to reach the minimum size
+		int missing = (m - nOpen) * PROBLEM.minLeagueSize;
+		for (int l = 0; l < nOpen; l++) {
+			missing += Math.max(0, PROBLEM.minLeagueSize - sizes[l]);
+		}
+		if (missing > n - nAssigned) return;
+
+		if (nAssigned == n) {
+			if (currentCost < bestCost) {
+				bestCost = currentCost;
+				System.arraycopy(assignment, 0, bestAssignment, 0, n);
+			}
+			return;
+		}
+
+		// bound and branching team (fewest feasible leagues)
+		int lastLeague = Math.min(nOpen + 1, m);
+		double bound = currentCost;
+		int branch = -1, branchOptions = Integer.MAX_VALUE;
+		for (int i = 0; i < n; i++) {
+			if (assignment[i] >= 0) continue;
+
+			int options = 0;
+			double minCost = Double.MAX_VALUE;
+			for (int l = 0; l < lastLeague; l++) {
+				if (fits(i, l)) {
+					options++;
+					minCost = Math.min(minCost, addCost[i][l] + cheapestMates[i][Math.max(0, PROBLEM.minLeagueSize - 1 - sizes[l])]);
+				}
+			}
+			if (options == 0) return;
+
+			bound += minCost;
+			if (options < branchOptions) {
+				branch = i;
+				branchOptions = options;
+			}
+		}
+		if (bound >= bestCost) return;
+
+		// leagues sorted by the cost of adding the team
+		int order[] = new int[branchOptions];
+		int k = 0;
+		for (int l = 0; l < lastLeague; l++) {
+			if (!fits(branch, l)) continue;
+			int j = k++;
+			while (j > 0 && addCost[branch][order[j - 1]] > addCost[branch][l]) {
+				order[j] = order[j - 1];
+				j--;
+			}
+			order[j] = l;
+		}
+
+		for (int l : order) {
+			double delta = addCost[branch][l];
+			long oldCandidates = candidates[l];
+			assign(branch, l);
+			search(nAssigned + 1, currentCost + delta, l == nOpen ? nOpen + 1 : nOpen);
+			unassign(branch, l, oldCandidates);
+			if (nodes > NODE_LIMIT) return;
+		}
+	}
+
+	private boolean fits(int team, int league) {
+		if (sizes[league] == 0) return true;
+		if (sizes[league] >= PROBLEM.maxLeagueSize) return false;
+		if ((candidates[league] & (1L << team)) == 0) return false;
+		return clubCounts[league][clubs[team]] < PROBLEM.maxTeamSameClub;
+	}
+
+	private void assign(int team, int league) {
+		assignment[team] = league;
+		candidates[league] = sizes[league] == 0 ? compatible[team] : candidates[league] & compatible[team];
+		sizes[league]++;
+		clubCounts[league][clubs[team]]++;
+		for (int i = 0; i < n; i++) {
+			addCost[i][league] += cost[team][i];
+		}
+	}
+
+	private void unassign(int team, int league, long oldCandidates) {
+		assignment[team] = -1;
+		candidates[league] = oldCandidates;
+		sizes[league]--;
+		clubCounts[league][clubs[team]]--;
+		for (int i = 0; i < n; i++) {
+			addCost[i][league] -= cost[team][i];
+		}
+	}
+
+	/* apply ------------------------------------------------------------------------------------------------------- */
+
+	/**
+	 * Replaces the selected leagues by the best partition; the leagues that
+	 * are also in the best partition are kept.
+	 */
+	private void rebuild(MtSolution solution) {
+		long groups[] = new long[m];
+		for (int i = 0; i < n; i++) {
+			groups[bestAssignment[i]] |= 1L << i;
+		}
+
+		boolean kept[] = new boolean[m];
+		int first = 0;
+		for (League league : leagues) {
+			long mask = 0;
+			for (int i = first; i < first + league.teams.size(); i++) {
+				mask |= 1L << i;
+			}
+			first += league.teams.size();
+
+			boolean same = false;
+			for (int l = 0; l < m && !same; l++) {
+				if (groups[l] == mask) {
+					kept[l] = same = true;
+				}
+			}
+			if (!same) {
+				for (int i = league.teams.size() - 1; i >= 0; i--) {
+					Team team = league.teams.get(i);
+					league.removeTeam(team, league.deltaIfRemove(team));
+				}
+			}
+		}
+
+		for (int l = 0; l < m; l++) {
+			if (kept[l]) continue;
+
+			League league = null;
+			for (int i = 0; i < n; i++) {
+				if (bestAssignment[i] != l) continue;
+				if (league == null) {
+					league = new League(solution, teams[i]);
+				}
+				else {
+					league.addTeam(teams[i], league.deltaIfAdd(teams[i]));
+				}
+			}
+		}
+	}
+
+	public String getStatistics() {
+		return String.format("Repartitioning: %d calls, %d improvements, %d complete searches, %.0f nodes per call",
+				nCalls, nImproved, nComplete, nCalls > 0 ? (double) nNodes / nCalls : 0.0);
+	}
+}
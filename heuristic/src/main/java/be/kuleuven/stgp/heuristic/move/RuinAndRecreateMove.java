@@ -22,10 +22,8 @@ public class RuinAndRecreateMove extends Move {
 	}
 
 	@Override
-	public MtSolution getNeighbour(MtSolution original) {
+	public boolean apply(MtSolution solution) {
 
-		assert original.debugSolution();
-		MtSolution solution = new MtSolution(original);
 		assert solution.nInfeasible() <= solution.problem.teams.length;
 		assert solution.debugSolution();
 
@@ -40,7 +38,11 @@ public class RuinAndRecreateMove extends Move {
 
 		maxNleauges = Math.max(maxNleauges, catLeagues.size());
 		int nLeagues = RANDOM.nextInt(maxNleauges + 1 - minNleauges) + minNleauges;
-		Collections.shuffle(catLeagues, RANDOM);
+
+		/* only the first nLeagues positions are shuffled */
+		for (int i = 0; i < nLeagues && i < catLeagues.size() - 1; i++) {
+			solution.swapLeagues(i, i + RANDOM.nextInt(catLeagues.size() - i));
+		}
 		ArrayList<Team> removedTeams = new ArrayList<>();
 
 		int leagueIt = 0;
@@ -74,10 +76,8 @@ public class RuinAndRecreateMove extends Move {
 				assert maxRemove + 1 - minRemove > 0 : maxRemove + " - " + minRemove + "<= 0";
 				int remove = RANDOM.nextInt(maxRemove + 1 - minRemove) + minRemove;
 
-				Collections.shuffle(league.teams, RANDOM);
-				int teamIt = 0;
-				for (int i = 0; i < remove && teamIt < league.teams.size(); ) {
-					Team team = league.teams.get(teamIt++);
+				for (int i = 0; i < remove && !league.teams.isEmpty(); ) {
+					Team team = league.teams.get(RANDOM.nextInt(league.teams.size()));
 					double objectiveDelta = league.deltaIfRemove(team);
 					league.removeTeam(team, objectiveDelta);
 					removedTeams.add(team);
@@ -116,11 +116,10 @@ public class RuinAndRecreateMove extends Move {
 		BESTFIT.insertAtBest(solution.getLeagues(), removedTeams);
 
 		if (removedTeams.isEmpty()) {
-			assert original.debugSolution();
-			assert solution.debugSolution() : "original inf:" + original.nInfeasible() + "    new inf:" + solution.nInfeasible();
-			return solution;
+			assert solution.debugSolution() : "new inf:" + solution.nInfeasible();
+			return true;
 		} else {
-			return original;
+			return false;
 		}
 
 	}
@@ -358,9 +358,11 @@ public class BranchNode implements Comparable<BranchNode> {
         Map<PairInt, Double> varsMap = new TreeMap<>();
         for (Column col : columns) {
             if (col.getValue() > Constants.EPS && col.getValue() < 1 - Constants.EPS) {
-                for (Team teamI : col.league.teams) {
-                    Set<Team> nextTeams = col.league.teams.tailSet(teamI, false);
-                    for (Team teamJ : nextTeams) {
+                Team teams[] = col.league.toArray();
+                for (int i = 0; i < teams.length; i++) {
+                    Team teamI = teams[i];
+                    for (int j = i + 1; j < teams.length; j++) {
+                        Team teamJ = teams[j];
                         assert teamI.id < teamJ.id : "error in the teams order";
                         PairInt key = new PairInt(teamI.id, teamJ.id);
 
@@ -162,15 +162,9 @@ public class Pricing {
 
         // adding y_{ij} variables to objective function
         for (int i = 0; i < problem.teams.length; i++) {
-            Team teamI = problem.teams[i];
-
             for (int j = i + 1; j < problem.teams.length; j++) {
-                Team teamJ = problem.teams[j];
-
-                if (Math.abs(teamI.level - teamJ.level) <= problem.maxLevelDiff
-                  && teamI.getTravelDistTo(teamJ) <= problem.maxTravelDist
-                  && teamI.getTravelTimeTo(teamJ) <= problem.maxTravelTime) {
-                    objective.addTerm(2 * teamI.getWeightedDistTimeTo(teamJ), y[i][j]);
+                if (problem.isCompatible(i, j)) {
+                    objective.addTerm(2 * problem.pairCost(i, j), y[i][j]);
                 }
             }
         }
@@ -252,14 +246,8 @@ public class Pricing {
         // creating y_{ij} variables
         y = new MPVar[problem.teams.length][problem.teams.length];
         for (int i = 0; i < problem.teams.length; i++) {
-            Team teamI = problem.teams[i];
-
             for (int j = i + 1; j < problem.teams.length; j++) {
-                Team teamJ = problem.teams[j];
-
-                if (Math.abs(teamI.level - teamJ.level) <= problem.maxLevelDiff
-                  && teamI.getTravelDistTo(teamJ) <= problem.maxTravelDist
-                  && teamI.getTravelTimeTo(teamJ) <= problem.maxTravelTime) {
+                if (problem.isCompatible(i, j)) {
                     y[i][j] = model.addBinVar(String.format("y(%d,%d)", i, j));
                 }
                 else {
@@ -37,7 +37,7 @@ public class PricingProblem {
         // adding distances
         for (int i = 0; i < problem.teams.length; i++)
             for (int j = i + 1; j < problem.teams.length; j++)
-                if (problem.teams[i].isCompatible(problem.teams[j]))
+                if (problem.isCompatible(i, j))
                     distances.put(new PairInt(i, j), problem.teams[i].getTravelDistTo(problem.teams[j]));
 
 
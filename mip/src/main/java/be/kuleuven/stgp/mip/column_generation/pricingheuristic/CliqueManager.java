@@ -1,7 +1,6 @@
 package be.kuleuven.stgp.mip.column_generation.pricingheuristic;
 
 import be.kuleuven.stgp.core.model.*;
-import be.kuleuven.stgp.core.util.*;
 
 import java.util.*;
 
@@ -177,8 +176,13 @@ public class CliqueManager {
 	}
 
 	private void fixPreprocessedConflicts() {
-		for (Pair<Team, Team> pair : problem.getIncompatibleTeams()) {
-			fix(pair.first.id, pair.second.id, false);
+		for (int i = 0; i < problem.teams.length - 1; i++) {
+			if (problem.getCompatibleDegree(i) == problem.teams.length - 1) continue;
+			for (int j = i + 1; j < problem.teams.length; j++) {
+				if (!problem.isCompatible(i, j)) {
+					fix(i, j, false);
+				}
+			}
 		}
 	}
 